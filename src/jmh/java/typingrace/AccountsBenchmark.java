@@ -0,0 +1,79 @@
+package typingrace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A FileUserStore holding a million accounts: logins through Accounts and its verifier pool, with
+// the hash at the server's default cost, and a cold start that reads the whole snapshot back.
+// Every account shares one hash so the snapshot can be written in seconds; a lookup still has to
+// find its own name among the million.
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx3g", "-Dtypingrace.log.level=WARN"})
+public class AccountsBenchmark {
+    private static final int ACCOUNTS = 1_000_000;
+    private static final int ITERATIONS = 100_000; // typingrace.users.hashIterations default
+
+    private Path directory;
+    private Path base;
+    private Accounts accounts;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("typingrace-users");
+        base = directory.resolve("users");
+        String hash = PasswordHash.create("secret", ITERATIONS).encode();
+        Base64.Encoder encoder = Base64.getUrlEncoder();
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(base + ".snapshot"), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < ACCOUNTS; i++) {
+                out.write(encoder.encodeToString(("player" + i).getBytes(StandardCharsets.UTF_8)) + " " + hash + "\n");
+            }
+        }
+        accounts = new Accounts(new FileUserStore(base));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (String suffix : new String[] {".snapshot", ".log"}) {
+            Files.deleteIfExists(Path.of(base + suffix));
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    // Several clients logging in at once, so the verifier queue never runs dry
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 5, time = 5)
+    public boolean login() {
+        return accounts.login("player" + ThreadLocalRandom.current().nextInt(ACCOUNTS), "secret").join();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 5)
+    public int coldStart() throws IOException {
+        return new FileUserStore(base).size();
+    }
+}
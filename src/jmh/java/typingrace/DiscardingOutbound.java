@@ -0,0 +1,24 @@
+package typingrace;
+
+// A client that reads instantly: every frame is accepted and forgotten, so a benchmark measures
+// the server side of a send and not a socket.
+final class DiscardingOutbound implements Outbound {
+    long frames;
+    long bytes;
+
+    @Override
+    public boolean offer(Frame frame) {
+        frames++;
+        bytes += frame.length();
+        return true;
+    }
+
+    @Override
+    public int backlog() {
+        return 0;
+    }
+
+    @Override
+    public void closeAfterFlush() {
+    }
+}
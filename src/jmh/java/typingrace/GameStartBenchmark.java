@@ -0,0 +1,115 @@
+package typingrace;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Starting a round of a three player room on a large dictionary. shared is GameRoom.start as it
+// is, on the corpus loaded once for the process; perPlayerRead adds what every start used to do,
+// each player reading the word file into a list of its own. heapMegabytes is the heap in use
+// after a collection while a round is running, dictionary included.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 1, time = 5) // Aux counters add up over iterations, so one gives the plain values
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g", "-Dtypingrace.rooms.store=memory", "-Dtypingrace.matches.store=memory",
+        "-Dtypingrace.log.level=WARN", "-Dtypingrace.words.reloadMs=0"})
+public class GameStartBenchmark {
+    private static final int PLAYERS = 3;
+
+    @Param({"shared", "perPlayerRead"})
+    public String corpus;
+
+    @Param({"1000000"})
+    public int words;
+
+    private Path file;
+    private GameRoom room;
+    private final List<List<String>> playerWords = new ArrayList<>(); // Held by the players for the whole round
+
+    private double heapMegabytes;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Observed {
+        public double heapMegabytes;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        file = WordFiles.random(words, 1);
+        System.setProperty("typingrace.words", file.toString()); // Before the shared corpus is loaded
+        SessionRegistry sessions = new SessionRegistry();
+        List<Session> seated = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            ClientHandler handler = new ClientHandler(null, null, new DiscardingOutbound());
+            Session session = sessions.open(null, handler);
+            handler.attach(session);
+            sessions.login(session, "player" + i);
+            seated.add(session);
+        }
+        room = new GameRoom(1, seated);
+        for (Session session : seated) {
+            session.setRoom(room);
+        }
+        start(); // A round is running when the heap is measured
+    }
+
+    @Setup(Level.Iteration)
+    public void measureHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        heapMegabytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024.0 * 1024.0);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        room.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void startGame(Observed observed) throws IOException {
+        start();
+        observed.heapMegabytes = heapMegabytes; // Measured outside the timed part
+    }
+
+    private void start() throws IOException {
+        if (corpus.equals("perPlayerRead")) {
+            playerWords.clear();
+            for (int i = 0; i < PLAYERS; i++) {
+                List<String> list = new ArrayList<>();
+                try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        list.add(line);
+                    }
+                }
+                playerWords.add(list);
+            }
+        }
+        room.start();
+    }
+}
@@ -0,0 +1,88 @@
+package typingrace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// ClientHandler.onInput for one line of input from a racing player: a SUBMIT that is checked in
+// place and answered with RESULT and the next WORD, and a KEYS batch that goes the ordinary way.
+// metrics=false runs the same lines with every counter and histogram update skipped, which is
+// what the instrumentation of the message path costs.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dtypingrace.rooms.store=memory", "-Dtypingrace.matches.store=memory",
+        "-Dtypingrace.log.level=WARN", "-Dtypingrace.words.reloadMs=0", "-Dtypingrace.game.words=100000", "-Dtypingrace.game.seed=1"})
+public class InputDispatchBenchmark {
+    private static final int WORDS = 100_000; // As typingrace.game.words, so a round lasts many iterations
+
+    @Param({"true", "false"})
+    public String metrics;
+
+    private ClientHandler handler;
+    private GameRoom room;
+    private ByteBuffer submits; // A SUBMIT line with the right answer for every word of the round, back to back
+    private int[] lineEnds;
+    private int next;
+    private final ByteBuffer keys = ByteBuffer.wrap("KEYS 120 95 -80 110 130\n".getBytes(StandardCharsets.US_ASCII));
+
+    @Setup
+    public void setUp() throws IOException {
+        Path words = WordFiles.random(WORDS, 1);
+        System.setProperty("typingrace.words", words.toString()); // Before the shared corpus is loaded
+        System.setProperty("typingrace.metrics.enabled", metrics); // Before the first handler loads Metrics
+        handler = new ClientHandler(null, null, new DiscardingOutbound());
+        SessionRegistry sessions = new SessionRegistry();
+        Session session = sessions.open(null, handler);
+        handler.attach(session);
+        sessions.login(session, "racer");
+        room = new GameRoom(1, List.of(session));
+        session.setRoom(room);
+        room.start();
+
+        WordCorpus.Snapshot corpus = WordCorpus.shared().current();
+        int[] sequence = WordSelector.forCorpus(corpus).sequence(Math.min(WORDS, corpus.size()), 1); // The room's words, same seed
+        StringBuilder lines = new StringBuilder();
+        lineEnds = new int[sequence.length];
+        for (int i = 0; i < sequence.length; i++) {
+            lines.append("SUBMIT ").append(corpus.word(sequence[i])).append('\n');
+            lineEnds[i] = lines.length(); // Words are ASCII, so chars and bytes line up
+        }
+        submits = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Benchmark
+    public void submitLine() throws IOException {
+        if (next == lineEnds.length) {
+            room.start(); // Round over, race again from the first word
+            next = 0;
+        }
+        int start = next == 0 ? 0 : lineEnds[next - 1];
+        submits.limit(lineEnds[next]);
+        submits.position(start);
+        next++;
+        handler.onInput(submits);
+    }
+
+    @Benchmark
+    public void keysLine() throws IOException {
+        keys.clear();
+        handler.onInput(keys);
+    }
+}
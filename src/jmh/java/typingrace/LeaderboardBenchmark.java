@@ -0,0 +1,76 @@
+package typingrace;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A leaderboard that has already recorded 10M three-player matches among 1M players: recording one
+// more match, the top 100 and the rank of a random player. The rolling window is one second, so
+// the recent board stays the size a busy second leaves rather than growing with the run.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LeaderboardBenchmark {
+    private static final int SEATS = 3;
+    private static final long WINDOW_MILLIS = 1000;
+
+    @Param({"10000000"})
+    public int matches;
+
+    @Param({"1000000"})
+    public int players;
+
+    private Leaderboard leaderboard;
+    private String[] names;
+    private final SplittableRandom random = new SplittableRandom(1);
+
+    @Setup
+    public void setUp() {
+        names = new String[players];
+        for (int i = 0; i < players; i++) {
+            names[i] = "player" + i;
+        }
+        leaderboard = new Leaderboard(WINDOW_MILLIS);
+        for (int i = 0; i < matches; i++) {
+            record();
+        }
+    }
+
+    @Benchmark
+    public void record() {
+        Map<String, Integer> correctCounts = new HashMap<>();
+        Map<String, Integer> speeds = new HashMap<>();
+        for (int seat = 0; seat < SEATS; seat++) {
+            String name = names[random.nextInt(players)];
+            correctCounts.put(name, random.nextInt(31));
+            speeds.put(name, random.nextInt(1500));
+        }
+        leaderboard.record(System.currentTimeMillis(), correctCounts, speeds);
+    }
+
+    @Benchmark
+    public List<RankTree.Entry> top100() {
+        return leaderboard.top(100, Leaderboard.Kind.ALL_TIME);
+    }
+
+    @Benchmark
+    public Leaderboard.Standing rank() {
+        return leaderboard.rank(names[random.nextInt(players)], Leaderboard.Kind.ALL_TIME);
+    }
+}
@@ -0,0 +1,87 @@
+package typingrace;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Seating players from 1 to 64 acceptor threads at once into one shared matchmaker. Each call
+// seats a player and confirms it, so every third call fills a lobby, starts it and retires it, the
+// way lobbies come and go on a busy server. The score is seats per microsecond over all threads,
+// so flat from seat1 to seat64 means acceptors never wait on each other. The game starter does
+// nothing, the seating is what is measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dtypingrace.log.level=WARN")
+public class MatchmakerBenchmark {
+    private static final int GROUP_SIZE = 3;
+    private static final int PLAYERS_PER_THREAD = 1024; // Far more than seats open at once, so a player is seated again only after its game started
+
+    private Matchmaker matchmaker;
+
+    @State(Scope.Thread)
+    public static class Acceptor {
+        private final Session[] players = new Session[PLAYERS_PER_THREAD];
+        private int next;
+
+        @Setup
+        public void setUp() {
+            SessionRegistry sessions = new SessionRegistry();
+            for (int i = 0; i < players.length; i++) {
+                players[i] = sessions.open(null, null);
+            }
+        }
+
+        Session nextPlayer() {
+            if (++next == players.length) {
+                next = 0;
+            }
+            return players[next];
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        matchmaker = new Matchmaker(GROUP_SIZE, GROUP_SIZE, 0, players -> { });
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void seat1(Acceptor acceptor) {
+        seat(acceptor.nextPlayer());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void seat4(Acceptor acceptor) {
+        seat(acceptor.nextPlayer());
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void seat16(Acceptor acceptor) {
+        seat(acceptor.nextPlayer());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void seat64(Acceptor acceptor) {
+        seat(acceptor.nextPlayer());
+    }
+
+    private void seat(Session player) {
+        matchmaker.join(player);
+        matchmaker.confirm(player);
+    }
+}
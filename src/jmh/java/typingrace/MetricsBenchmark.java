@@ -0,0 +1,47 @@
+package typingrace;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// What one metrics update costs on its own: a counter increment, and a histogram timing the code
+// around it, clock reads included, on every call or on one in 16 as messages.handleTime does.
+// InputDispatchBenchmark shows the same in a real message path.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private final Metrics.Counter counter = Metrics.counter("benchmark.counter");
+    private final Metrics.Histogram histogram = Metrics.histogram("benchmark.histogram");
+    private final Metrics.Histogram sampled = Metrics.histogram("benchmark.sampled", 16);
+
+    @Benchmark
+    public void counterIncrement() {
+        counter.increment();
+    }
+
+    @Benchmark
+    public void histogramRecordSince() {
+        histogram.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    public void sampledRecordSince() {
+        sampled.recordSince(sampled.start());
+    }
+
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,193 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// LoadBot games played through LatencyProxy, with server, proxy and bots each in a process of
+// their own: BOTS bots in groups of three, one round of WORDS words each. The proxy forwards every
+// chunk it reads as one write, so its chunk counts are the socket writes of each side, per game in
+// serverWritesPerGame and clientWritesPerGame; serverOutboundWrites is the server's own count per
+// game. loginP50Millis is LoadBot's connect to "Login successful", a few round trips of the proxy
+// delay unless pipeline sends register, login and yes without waiting for the prompts. The score
+// is the whole run, mostly the bots typing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1) // Aux counters add up over iterations, so one gives the plain values
+@Fork(1)
+public class ProxiedGameBenchmark {
+    private static final int BOTS = 30;
+    private static final int GAMES = BOTS / 3;
+    private static final int WORDS = 10;
+    private static final Pattern CONNECT_TO_LOGIN = Pattern.compile("connect -> login\\s+n=(\\d+) p50=([0-9.]+)ms");
+
+    @Param({"false", "true"})
+    public String pipeline;
+
+    @Param({"25"})
+    public int delayMs;
+
+    private int serverPort;
+    private int serverMetricsPort;
+    private int proxyPort;
+    private int proxyMetricsPort;
+    private long[] before; // Counters after the startup probes, taken off the iteration's counts
+    private final List<Process> processes = new ArrayList<>();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Observed {
+        public double serverWritesPerGame;
+        public double clientWritesPerGame;
+        public double serverOutboundWrites;
+        public double loginP50Millis;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            serverWritesPerGame = 0;
+            clientWritesPerGame = 0;
+            serverOutboundWrites = 0;
+            loginP50Millis = 0;
+        }
+    }
+
+    // A fresh server and proxy every iteration, so their counters only hold that iteration's games
+    @Setup(Level.Iteration)
+    public void start() throws IOException, InterruptedException {
+        serverPort = freePort();
+        serverMetricsPort = freePort();
+        proxyPort = freePort();
+        proxyMetricsPort = freePort();
+        processes.add(launch("typingrace.server",
+                "-Dtypingrace.port=" + serverPort,
+                "-Dtypingrace.mode=nio",
+                "-Dtypingrace.metrics.port=" + serverMetricsPort,
+                "-Dtypingrace.admission.perIpRate=0",
+                "-Dtypingrace.users.store=memory",
+                "-Dtypingrace.users.hashIterations=1000",
+                "-Dtypingrace.matches.store=memory",
+                "-Dtypingrace.rooms.store=memory",
+                "-Dtypingrace.words.reloadMs=0",
+                "-Dtypingrace.game.words=" + WORDS,
+                "-Dtypingrace.log.level=WARN"));
+        awaitListening(serverPort);
+        processes.add(launch("typingrace.LatencyProxy",
+                "-Dtypingrace.proxy.port=" + proxyPort,
+                "-Dtypingrace.port=" + serverPort,
+                "-Dtypingrace.proxy.delayMs=" + delayMs,
+                "-Dtypingrace.metrics.port=" + proxyMetricsPort,
+                "-Dtypingrace.log.level=WARN"));
+        awaitListening(proxyPort);
+        Thread.sleep(4 * delayMs + 200); // The probe's greeting goes through the proxy and is dropped
+        before = counters();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+            process.waitFor(10, TimeUnit.SECONDS);
+        }
+        processes.clear();
+    }
+
+    @Benchmark
+    public void playGames(Observed observed) throws IOException, InterruptedException {
+        Process bots = launch("typingrace.LoadBot",
+                "-Dtypingrace.port=" + proxyPort,
+                "-Dtypingrace.bot.count=" + BOTS,
+                "-Dtypingrace.bot.pipeline=" + pipeline,
+                "-Dtypingrace.bot.errorRate=0"); // Every game runs to its last word
+        String report;
+        try (InputStream in = bots.getInputStream()) {
+            report = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        if (!bots.waitFor(60, TimeUnit.SECONDS) || bots.exitValue() != 0) {
+            throw new IllegalStateException("LoadBot did not finish: " + report);
+        }
+        Matcher login = CONNECT_TO_LOGIN.matcher(report);
+        if (!login.find() || Integer.parseInt(login.group(1)) != BOTS) {
+            throw new IllegalStateException("Not every bot logged in: " + report);
+        }
+        long[] after = counters();
+        observed.serverWritesPerGame = (double) (after[0] - before[0]) / GAMES;
+        observed.clientWritesPerGame = (double) (after[1] - before[1]) / GAMES;
+        observed.serverOutboundWrites = (double) (after[2] - before[2]) / GAMES;
+        observed.loginP50Millis = Double.parseDouble(login.group(2));
+    }
+
+    private static Process launch(String mainClass, String... properties) throws IOException {
+        List<String> command = new ArrayList<>(List.of(ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path")));
+        command.addAll(List.of(properties));
+        command.add(mainClass);
+        return new ProcessBuilder(command)
+                .redirectOutput("typingrace.LoadBot".equals(mainClass) ? ProcessBuilder.Redirect.PIPE : ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket free = new ServerSocket(0)) {
+            return free.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(int port) throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                SocketChannel.open(new InetSocketAddress("localhost", port)).close();
+                return;
+            } catch (IOException e) {
+                if (i == 400) {
+                    throw e;
+                }
+                Thread.sleep(25);
+            }
+        }
+    }
+
+    // Chunks to the clients and to the server through the proxy, and the server's outbound writes
+    private long[] counters() throws IOException {
+        return new long[] {metric(proxyMetricsPort, "proxy.chunksToClient"), metric(proxyMetricsPort, "proxy.chunksToServer"),
+                metric(serverMetricsPort, "outbound.writes")};
+    }
+
+    private static long metric(int port, String name) throws IOException {
+        String text;
+        try (InputStream in = URI.create("http://localhost:" + port + "/metrics").toURL().openStream()) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        for (String line : text.split("\\n")) {
+            if (line.startsWith(name + " ")) {
+                return Long.parseLong(line.substring(name.length() + 1));
+            }
+        }
+        throw new IOException("No " + name + " on port " + port);
+    }
+}
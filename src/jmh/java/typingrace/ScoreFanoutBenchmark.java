@@ -0,0 +1,92 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One score change going out to a room: LiveScores builds the batch, encodes it once per protocol
+// and every racer's handler queues the shared Broadcast frame. Half the racers speak binary. The
+// tick is off, so each change is its own batch, which is the most a room can ever send.
+// perSocketWriter is the fan-out this replaced: the whole score line built again and a new
+// PrintWriter made for every socket, on every change.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dtypingrace.scores.tickMs=0", "-Dtypingrace.log.level=WARN"})
+public class ScoreFanoutBenchmark {
+    @Param({"3", "100", "10000"})
+    public int seats;
+
+    private LiveScores scores;
+    private String[] names;
+    private int[] totals;
+    private int seat;
+    private int score;
+
+    @Setup
+    public void setUp() throws IOException {
+        SessionRegistry sessions = new SessionRegistry();
+        List<ClientHandler> racers = new ArrayList<>();
+        names = new String[seats];
+        totals = new int[seats];
+        for (int i = 0; i < seats; i++) {
+            ClientHandler handler = new ClientHandler(null, null, new DiscardingOutbound());
+            handler.attach(sessions.open(null, handler));
+            if (i % 2 == 1) {
+                handler.onInput(ByteBuffer.wrap((BinaryCodec.NEGOTIATION + "\n").getBytes(StandardCharsets.US_ASCII)));
+            }
+            racers.add(handler);
+            names[i] = "player" + i;
+        }
+        scores = new LiveScores(batch -> {
+            for (ClientHandler handler : racers) {
+                handler.send(batch);
+            }
+        }, new SpectatorChannel(1));
+        scores.reset(names);
+    }
+
+    @Benchmark
+    public void scoreChange() {
+        if (++seat == seats) {
+            seat = 0;
+            score++;
+        }
+        scores.set(seat, score + 1, "keyboard");
+    }
+
+    @Benchmark
+    public void perSocketWriter() {
+        if (++seat == seats) {
+            seat = 0;
+            score++;
+        }
+        totals[seat] = score + 1;
+        for (int socket = 0; socket < seats; socket++) {
+            StringBuilder text = new StringBuilder("Live Scores:");
+            for (int i = 0; i < seats; i++) {
+                text.append(' ').append(names[i]).append('=').append(totals[i]);
+            }
+            PrintWriter out = new PrintWriter(OutputStream.nullOutputStream(), true);
+            out.println(text);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package typingrace;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// One connection's whole life in the SessionRegistry, opened, logged in and closed, while the
+// other sessions stay open. Everything it allocates is garbage once it closes; SessionChurnTest
+// checks that none of it is kept.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionChurnBenchmark {
+    private static final int NAMES = 1 << 16; // Reused, so the benchmark does not measure building strings
+
+    @Param({"1000", "100000"})
+    public int sessions;
+
+    private SessionRegistry registry;
+    private String[] names;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registry = new SessionRegistry();
+        for (int i = 0; i < sessions; i++) {
+            registry.login(registry.open(null, null), "player" + i);
+        }
+        names = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = "churn" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean connectLoginDisconnect() {
+        Session session = registry.open(null, null);
+        registry.login(session, names[next++ & (NAMES - 1)]);
+        return registry.close(session);
+    }
+}
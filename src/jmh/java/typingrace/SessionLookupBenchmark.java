@@ -0,0 +1,61 @@
+package typingrace;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// SessionRegistry lookups with every session logged in, walking all of them so the probes are
+// not served from one hot cache line
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionLookupBenchmark {
+    @Param({"1000", "100000"})
+    public int sessions;
+
+    private SessionRegistry registry;
+    private String[] names;
+    private long[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        registry = new SessionRegistry();
+        names = new String[sessions];
+        ids = new long[sessions];
+        for (int i = 0; i < sessions; i++) {
+            Session session = registry.open(null, null);
+            names[i] = "player" + i;
+            ids[i] = session.getId();
+            registry.login(session, names[i]);
+        }
+    }
+
+    @Benchmark
+    public Session byUsername() {
+        if (++next == sessions) {
+            next = 0;
+        }
+        return registry.byUsername(names[next]);
+    }
+
+    @Benchmark
+    public Session byId() {
+        if (++next == sessions) {
+            next = 0;
+        }
+        return registry.byId(ids[next]);
+    }
+}
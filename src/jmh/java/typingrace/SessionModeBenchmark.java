@@ -0,0 +1,255 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Thousands of connections logging in to the real server in each session mode, all of them
+// staying connected, so the last ones log in next to thousands of open sessions. The score is the
+// time until all are in; loginP99Millis is connect to "Login successful", rssMegabytes the server
+// process once all are in. The server runs in a process of its own, so its RSS is not mixed with
+// the clients' and each side holds one end of every socket, 10000 clients under a 20000 descriptor
+// limit. blocking gets a pool as large as the client count, or most clients would never be served.
+// virtual needs Java 21 or newer; on an older JVM its setup fails and JMH goes on without it
+// rather than recording a thread per connection under its name.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1) // Aux counters add up over iterations, so one gives the plain values
+@Fork(value = 1, jvmArgsAppend = {"-Xms512m", "-Xmx2g"})
+public class SessionModeBenchmark {
+    private static final int CONNECTING = 256; // Clients not yet logged in at once; the blocking accept backlog is 50
+    private static final String PASSWORD = "secret";
+
+    @Param({"blocking", "virtual", "nio"})
+    public String mode;
+
+    @Param({"10000"})
+    public int clients;
+
+    private int port;
+    private int metricsPort;
+    private Path accounts; // The server's account files, written before it starts
+    private Process serverProcess;
+    private final List<SocketChannel> connected = new ArrayList<>();
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Observed {
+        public double loginP99Millis;
+        public double rssMegabytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            loginP99Millis = 0;
+            rssMegabytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        if ("virtual".equals(mode) && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("virtual needs Java 21 or newer, this is " + Runtime.version());
+        }
+        port = freePort();
+        metricsPort = freePort();
+        accounts = Files.createTempDirectory("session-mode");
+        FileUserStore store = new FileUserStore(accounts.resolve("users"));
+        PasswordHash hash = PasswordHash.create(PASSWORD, 1000); // Measures sessions, not password hashing
+        for (int i = 0; i < clients; i++) {
+            store.add("player" + i, hash);
+        }
+        List<String> command = new ArrayList<>(List.of(ProcessHandle.current().info().command().orElse("java"),
+                "-Xms512m", "-Xmx2g", "-cp", System.getProperty("java.class.path"),
+                "-Dtypingrace.port=" + port,
+                "-Dtypingrace.mode=" + mode,
+                "-Dtypingrace.poolSize=" + clients,
+                "-Dtypingrace.handoffQueue=" + clients,
+                "-Dtypingrace.maxSessions=" + 2 * clients,
+                "-Dtypingrace.admission.perIpRate=0",
+                "-Dtypingrace.users.file=" + accounts.resolve("users"),
+                "-Dtypingrace.users.hashIterations=1000",
+                "-Dtypingrace.users.verifyQueue=" + clients,
+                "-Dtypingrace.matches.store=memory",
+                "-Dtypingrace.rooms.store=memory",
+                "-Dtypingrace.metrics.port=" + metricsPort, // Where the benchmark reads connections.active
+                "-Dtypingrace.words.reloadMs=0",
+                "-Dtypingrace.idle.loginMs=0",
+                "-Dtypingrace.log.level=WARN",
+                "typingrace.server"));
+        serverProcess = new ProcessBuilder(command)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        for (int i = 0; ; i++) {
+            try {
+                SocketChannel.open(new InetSocketAddress("localhost", port)).close();
+                break;
+            } catch (IOException e) {
+                if (i == 400 || !serverProcess.isAlive()) {
+                    throw e;
+                }
+                Thread.sleep(25);
+            }
+        }
+        awaitSessions(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void disconnectAll() throws IOException, InterruptedException {
+        for (SocketChannel channel : connected) {
+            channel.close();
+        }
+        connected.clear();
+        awaitSessions(0);
+    }
+
+    @TearDown
+    public void stopServer() throws IOException, InterruptedException {
+        if (serverProcess != null) {
+            serverProcess.destroy();
+            serverProcess.waitFor(10, TimeUnit.SECONDS);
+        }
+        if (accounts != null) {
+            try (Stream<Path> files = Files.list(accounts)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(accounts);
+        }
+    }
+
+    @Benchmark
+    public void loginAll(Observed observed) throws IOException {
+        long[] latencies = new long[clients];
+        int launched = 0;
+        int loggedIn = 0;
+        ByteBuffer readBuffer = ByteBuffer.allocate(4096);
+        try (Selector selector = Selector.open()) {
+            while (loggedIn < clients) {
+                while (launched < clients && launched - loggedIn < CONNECTING) {
+                    SocketChannel channel = SocketChannel.open();
+                    channel.configureBlocking(false);
+                    Client client = new Client(launched++, System.nanoTime());
+                    channel.connect(new InetSocketAddress("localhost", port));
+                    channel.register(selector, SelectionKey.OP_CONNECT, client);
+                    connected.add(channel);
+                }
+                selector.select(100);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    SocketChannel channel = (SocketChannel) key.channel();
+                    Client client = (Client) key.attachment();
+                    if (key.isConnectable()) {
+                        channel.finishConnect();
+                        String login = "login\nplayer" + client.number + "\n" + PASSWORD + "\n"; // Answers all three prompts ahead
+                        channel.write(ByteBuffer.wrap(login.getBytes(StandardCharsets.UTF_8)));
+                        key.interestOps(SelectionKey.OP_READ);
+                    } else if (key.isReadable()) {
+                        readBuffer.clear();
+                        if (channel.read(readBuffer) < 0) {
+                            throw new IOException("Server closed client " + client.number + " after: " + client.received);
+                        }
+                        client.received.append(new String(readBuffer.array(), 0, readBuffer.position(), StandardCharsets.UTF_8));
+                        if (client.received.indexOf("Login successful") >= 0) {
+                            latencies[client.number] = System.nanoTime() - client.started;
+                            loggedIn++;
+                            key.interestOps(0); // Stays connected and idle
+                        } else if (client.received.indexOf("SERVER_FULL") >= 0 || client.received.indexOf("busy") >= 0
+                                || client.received.indexOf("failed") >= 0) {
+                            throw new IllegalStateException("Client " + client.number + " was turned away: " + client.received);
+                        }
+                    }
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        observed.loginP99Millis = latencies[clients * 99 / 100] / 1e6;
+        observed.rssMegabytes = residentKilobytes(serverProcess.pid()) / 1024.0;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket free = new ServerSocket(0)) {
+            return free.getLocalPort();
+        }
+    }
+
+    private static long residentKilobytes(long pid) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc/" + pid + "/status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        }
+        return 0;
+    }
+
+    private void awaitSessions(int count) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        long open;
+        while ((open = openSessions()) != count) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException(open + " sessions open, expected " + count);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private long openSessions() throws IOException {
+        URL metrics = URI.create("http://localhost:" + metricsPort + "/metrics").toURL();
+        String text;
+        try (InputStream in = metrics.openStream()) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        for (String line : text.split("\n")) {
+            if (line.startsWith("connections.active ")) {
+                return Long.parseLong(line.substring("connections.active ".length()));
+            }
+        }
+        throw new IOException("No connections.active in /metrics");
+    }
+
+    private static final class Client {
+        final int number;
+        final long started;
+        final StringBuilder received = new StringBuilder();
+
+        Client(int number, long started) {
+            this.number = number;
+            this.started = started;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package typingrace;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// A score change in a three player room, timed on the racer's side: the call returns once every
+// racer has the update queued. Spectators of the room are served by the fan-out pool meanwhile,
+// and updates come every PACE_MICROS, faster than any race, so with 10000 spectators a fan-out is
+// still running when the next update is sent. spectatorsLeft is how many were still subscribed at
+// the end; a lapped or backed up spectator is dropped.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 1, time = 10) // Aux counters add up over iterations, so one gives the plain values
+@Fork(value = 1, jvmArgsAppend = {"-Dtypingrace.scores.tickMs=0", "-Dtypingrace.log.level=WARN"})
+public class SpectatorLoadBenchmark {
+    private static final int RACERS = 3;
+    private static final long PACE_MICROS = 2000;
+
+    @Param({"0", "10000"})
+    public int spectators;
+
+    private SpectatorChannel channel;
+    private LiveScores scores;
+    private int seat;
+    private int score;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Observed {
+        public double spectatorsLeft;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        SessionRegistry sessions = new SessionRegistry();
+        List<ClientHandler> racers = new ArrayList<>();
+        String[] names = new String[RACERS];
+        for (int i = 0; i < RACERS; i++) {
+            racers.add(connect(sessions));
+            names[i] = "player" + i;
+        }
+        channel = new SpectatorChannel(1);
+        for (int i = 0; i < spectators; i++) {
+            channel.subscribe(connect(sessions));
+        }
+        scores = new LiveScores(batch -> {
+            for (ClientHandler handler : racers) {
+                handler.send(batch);
+            }
+        }, channel);
+        scores.reset(names);
+    }
+
+    @Setup(Level.Invocation)
+    public void pace() {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(PACE_MICROS)); // Not timed
+    }
+
+    @Benchmark
+    public void scoreChange(Observed observed) {
+        if (++seat == RACERS) {
+            seat = 0;
+            score++;
+        }
+        scores.set(seat, score + 1, "keyboard");
+        observed.spectatorsLeft = channel.size();
+    }
+
+    private static ClientHandler connect(SessionRegistry sessions) {
+        ClientHandler handler = new ClientHandler(null, null, new DiscardingOutbound());
+        handler.attach(sessions.open(null, handler));
+        return handler;
+    }
+}
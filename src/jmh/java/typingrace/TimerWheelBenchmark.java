@@ -0,0 +1,77 @@
+package typingrace;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Moving one player's word deadline while every other player also has one pending: what a word
+// answered in time costs. The wheel reschedules the seat's own timeout and its tick thread places
+// it, on the same CPUs, so its share shows up here too. executor is the one-task-per-word port
+// onto a ScheduledThreadPoolExecutor: cancel the old task, schedule a new one.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerWheelBenchmark {
+    private static final long WORD_SECONDS = 30; // Never due while measuring
+
+    @Param({"100000"})
+    public int players;
+
+    private TimerWheel wheel;
+    private TimerWheel.Timeout[] timeouts;
+    private ScheduledThreadPoolExecutor executor;
+    private ScheduledFuture<?>[] futures;
+    private final Runnable expired = () -> { };
+    private int next;
+
+    @Setup
+    public void setUp() {
+        wheel = new TimerWheel(10, 512);
+        timeouts = new TimerWheel.Timeout[players];
+        executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true); // Otherwise cancelled tasks pile up until they are due
+        futures = new ScheduledFuture<?>[players];
+        for (int i = 0; i < players; i++) {
+            timeouts[i] = wheel.timeout(expired);
+            timeouts[i].schedule(WORD_SECONDS, TimeUnit.SECONDS);
+            futures[i] = executor.schedule(expired, WORD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void wheel() {
+        if (++next == players) {
+            next = 0;
+        }
+        timeouts[next].schedule(WORD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void executor() {
+        if (++next == players) {
+            next = 0;
+        }
+        futures[next].cancel(false);
+        futures[next] = executor.schedule(expired, WORD_SECONDS, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,84 @@
+package typingrace;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// TypingEngine.submit on its own: check the word, record the time, move the deadline to the next
+// word. The listener does nothing, so this is the engine's share of a SUBMIT. Rounds of ROUND
+// words start over inline, so submit includes each round's setup spread over its words;
+// startRound is that setup alone.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dtypingrace.log.level=WARN")
+public class TypingEngineBenchmark {
+    private static final int ROUND = 1000;
+
+    private static final TypingEngine.Listener IGNORED = new TypingEngine.Listener() {
+        @Override
+        public void onWord(int seat, int index, int seconds, String word) {
+        }
+
+        @Override
+        public void onResult(int seat, int index, String word, boolean correct, int correctCount, long millis) {
+        }
+
+        @Override
+        public void onFinished(int seat, TypingEngine.Result result) {
+        }
+    };
+
+    private WordCorpus.Snapshot corpus;
+    private int[] sequence;
+    private byte[][] answers;
+    private TypingEngine engine;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<String> words = new ArrayList<>();
+        sequence = new int[ROUND];
+        answers = new byte[ROUND][];
+        for (int i = 0; i < ROUND; i++) {
+            words.add("word" + i);
+            sequence[i] = i;
+            answers[i] = words.get(i).getBytes(StandardCharsets.US_ASCII);
+        }
+        corpus = WordCorpus.Snapshot.of(words);
+        engine = startRound();
+    }
+
+    @Benchmark
+    public TypingEngine startRound() {
+        TypingEngine round = new TypingEngine(corpus, sequence, 1, IGNORED);
+        round.start(0);
+        round.forfeit(0); // Leaves no deadline behind on the shared wheel
+        next = 0;
+        return round;
+    }
+
+    @Benchmark
+    public void submit() {
+        if (next == ROUND) {
+            engine = new TypingEngine(corpus, sequence, 1, IGNORED);
+            engine.start(0);
+            next = 0;
+        }
+        byte[] answer = answers[next++];
+        engine.submit(0, answer, 0, answer.length);
+    }
+}
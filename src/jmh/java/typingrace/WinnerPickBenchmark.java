@@ -0,0 +1,60 @@
+package typingrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// GameRoom.finishIfAllDone once every player of the room is done: the check that nobody is still
+// racing and the pick of the winner, in rooms of a few players up to very large ones
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dtypingrace.rooms.store=memory", "-Dtypingrace.matches.store=memory",
+        "-Dtypingrace.log.level=WARN", "-Dtypingrace.words.reloadMs=0"})
+public class WinnerPickBenchmark {
+    @Param({"3", "100", "1000"})
+    public int players;
+
+    private GameRoom room;
+
+    @Setup
+    public void setUp() {
+        SessionRegistry sessions = new SessionRegistry();
+        List<Session> seated = new ArrayList<>();
+        for (int i = 0; i < players; i++) {
+            ClientHandler handler = new ClientHandler(null, null, new DiscardingOutbound());
+            Session session = sessions.open(null, handler);
+            handler.attach(session);
+            sessions.login(session, "player" + i);
+            seated.add(session);
+        }
+        room = new GameRoom(1, seated);
+        for (Session session : seated) {
+            session.setRoom(room);
+        }
+        room.start();
+        for (Session session : seated) {
+            room.quit(session); // The last one ends the round
+        }
+    }
+
+    // Single-threaded and the round is over, so nothing else takes the room's lock meanwhile
+    @Benchmark
+    public Map.Entry<String, Integer> finishIfAllDone() {
+        return room.finishIfAllDone();
+    }
+}
@@ -0,0 +1,33 @@
+package typingrace;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+// Word lists of any size for the benchmarks, written to a temporary file like words.txt
+final class WordFiles {
+    private WordFiles() {
+    }
+
+    // count lowercase words of 3 to 12 letters, one per line; the same seed gives the same file
+    static Path random(int count, long seed) throws IOException {
+        Path file = Files.createTempFile("typingrace-words", ".txt");
+        file.toFile().deleteOnExit();
+        SplittableRandom random = new SplittableRandom(seed);
+        char[] word = new char[12];
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < count; i++) {
+                int length = 3 + random.nextInt(10);
+                for (int c = 0; c < length; c++) {
+                    word[c] = (char) ('a' + random.nextInt(26));
+                }
+                out.write(word, 0, length);
+                out.write('\n');
+            }
+        }
+        return file;
+    }
+}
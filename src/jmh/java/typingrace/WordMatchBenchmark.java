@@ -0,0 +1,61 @@
+package typingrace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// WordCorpus.Snapshot.matchesIgnoreCase for the answers a player can send: exact, other case,
+// wrong length, a typo, and non-ASCII text that has to be decoded to compare. submitLine is the
+// whole check of a SUBMIT as it arrives, decoded in place and compared where it lies, without the
+// engine's bookkeeping or the reply.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordMatchBenchmark {
+    private static final int SUBMIT_PREFIX = "SUBMIT ".length();
+
+    @Param({"keyboard", "KEYBOARD", "keyboards", "keybaord", "STRAßE"})
+    public String typed;
+
+    private WordCorpus.Snapshot corpus;
+    private int index;
+    private byte[] bytes;
+    private ByteBuffer line;
+    private final LineDecoder decoder = new LineDecoder();
+
+    @Setup
+    public void setUp() {
+        corpus = WordCorpus.Snapshot.of(List.of("keyboard", "straße"));
+        index = typed.regionMatches(true, 0, "stra", 0, 4) ? 1 : 0;
+        bytes = typed.getBytes(StandardCharsets.UTF_8);
+        line = ByteBuffer.wrap(("SUBMIT " + typed + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public boolean matchesIgnoreCase() {
+        return corpus.matchesIgnoreCase(index, bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public boolean submitLine() throws IOException {
+        line.clear();
+        decoder.nextInPlace(line);
+        return corpus.matchesIgnoreCase(index, decoder.line(), SUBMIT_PREFIX, decoder.lineLength() - SUBMIT_PREFIX);
+    }
+}
@@ -0,0 +1,76 @@
+package typingrace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Drawing the word sequence of a new room from a 1M-word corpus whose difficulty index is already
+// built, in rooms per second; every room gets its own seed. shuffleCorpus is the obvious way to
+// get a random game, shuffling every index of the corpus for each room and taking the first words.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WordSelectorBenchmark {
+    @Param({"1000000"})
+    public int words;
+
+    @Param({"30", "300"})
+    public int length;
+
+    private Path file;
+    private WordSelector selector;
+    private int[] corpusOrder;
+    private long seed;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = WordFiles.random(words, 1);
+        WordCorpus.Snapshot corpus = WordCorpus.load(file);
+        selector = WordSelector.forCorpus(corpus);
+        corpusOrder = new int[corpus.size()];
+        for (int i = 0; i < corpusOrder.length; i++) {
+            corpusOrder[i] = i;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int[] sequence() {
+        return selector.sequence(length, ++seed);
+    }
+
+    @Benchmark
+    public int[] shuffleCorpus() {
+        SplittableRandom random = new SplittableRandom(++seed);
+        for (int i = corpusOrder.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = corpusOrder[i];
+            corpusOrder[i] = corpusOrder[j];
+            corpusOrder[j] = swap;
+        }
+        int[] sequence = new int[length];
+        System.arraycopy(corpusOrder, 0, sequence, 0, length);
+        return sequence;
+    }
+}
@@ -0,0 +1,67 @@
+package typingrace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Registration and login. Password hashing is slow on purpose, so it runs on a small bounded pool
+// of verifier threads; when a login flood fills the queue new attempts are turned away instead of
+// starving the game threads.
+public final class Accounts {
+    private static final int HASH_ITERATIONS = Integer.getInteger("typingrace.users.hashIterations", 100_000);
+    private static final int VERIFIERS = Integer.getInteger("typingrace.users.verifiers",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int VERIFY_QUEUE = Integer.getInteger("typingrace.users.verifyQueue", 256);
+
+    private static final Accounts shared = new Accounts(createStore());
+
+    private final UserStore store;
+    private final ThreadPoolExecutor verifiers;
+    private final PasswordHash dummyHash; // Checked for unknown users so timing doesn't reveal which names exist
+
+    Accounts(UserStore store) {
+        this.store = store;
+        this.verifiers = new ThreadPoolExecutor(VERIFIERS, VERIFIERS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(VERIFY_QUEUE), r -> {
+                    Thread thread = new Thread(r, "password-verifier");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = PasswordHash.create("", HASH_ITERATIONS);
+    }
+
+    public static Accounts shared() {
+        return shared;
+    }
+
+    private static UserStore createStore() {
+        if ("memory".equalsIgnoreCase(System.getProperty("typingrace.users.store", "file"))) {
+            return new MemoryUserStore();
+        }
+        try {
+            return new FileUserStore(Path.of(System.getProperty("typingrace.users.file", "users")));
+        } catch (IOException e) {
+            Log.warn("Could not open the account files, accounts will not be saved: " + e.getMessage());
+            return new MemoryUserStore();
+        }
+    }
+
+    // Completes with false if the name is taken. Both methods throw RejectedExecutionException when the verifiers are saturated.
+    public CompletableFuture<Boolean> register(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> store.add(username, PasswordHash.create(password, HASH_ITERATIONS)), verifiers);
+    }
+
+    public CompletableFuture<Boolean> login(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> {
+            PasswordHash hash = store.find(username);
+            if (hash == null) {
+                dummyHash.matches(password);
+                return false;
+            }
+            return hash.matches(password);
+        }, verifiers);
+    }
+}
@@ -0,0 +1,102 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Decides on the accept thread whether a new connection gets a session. Past MAX_SESSIONS, or when
+// one address connects faster than its token bucket refills, the connection gets one
+// "SERVER_FULL <retry ms>" line and is closed before any handler, session or lobby seat exists,
+// so a connection burst costs a few bytes each instead of queueing behind the players already in.
+public final class Admission {
+    static final int MAX_SESSIONS = Integer.getInteger("typingrace.maxSessions", 10000);
+    static final int HANDOFF_QUEUE = Integer.getInteger("typingrace.handoffQueue", 128); // Accepted connections waiting for a thread or event loop
+    private static final double PER_IP_RATE = Double.parseDouble(System.getProperty("typingrace.admission.perIpRate", "50")); // Connections per second, 0 for no limit
+    private static final double PER_IP_BURST = Double.parseDouble(System.getProperty("typingrace.admission.perIpBurst", "100"));
+    private static final long RETRY_MS = Long.getLong("typingrace.admission.retryMs", 1000); // Suggested wait when the server is full
+    private static final long SWEEP_NANOS = 10_000_000_000L; // How often buckets that refilled are forgotten
+    private static final Metrics.Counter FULL = Metrics.counter("admission.full");
+    private static final Metrics.Counter RATE_LIMITED = Metrics.counter("admission.rateLimited");
+    private static final Metrics.Counter HANDOFF_FULL = Metrics.counter("admission.handoffFull");
+
+    private final Map<InetAddress, Bucket> buckets = new HashMap<>(); // Only touched by the accept thread
+    private long sweptAt = System.nanoTime();
+
+    // Returns 0 if the connection may have a session, otherwise how long it should wait before retrying
+    public long admit(InetAddress address, int activeSessions) {
+        if (activeSessions >= MAX_SESSIONS) {
+            FULL.increment();
+            return retryAfterFull();
+        }
+        if (PER_IP_RATE <= 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        if (now - sweptAt > SWEEP_NANOS) {
+            sweep(now);
+        }
+        Bucket bucket = buckets.computeIfAbsent(address, key -> new Bucket(now));
+        bucket.refill(now);
+        if (bucket.tokens >= 1) {
+            bucket.tokens--;
+            return 0;
+        }
+        RATE_LIMITED.increment();
+        return (long) Math.ceil((1 - bucket.tokens) * 1000 / PER_IP_RATE); // Until the bucket holds a whole token again
+    }
+
+    // The handoff queue to the session threads or event loops is full
+    public long handoffFull() {
+        HANDOFF_FULL.increment();
+        return retryAfterFull();
+    }
+
+    // Spread out so rejected clients don't all come back in the same instant
+    private static long retryAfterFull() {
+        return RETRY_MS + ThreadLocalRandom.current().nextLong(RETRY_MS / 2 + 1);
+    }
+
+    // A full bucket is the same as no bucket, so idle addresses don't pile up
+    private void sweep(long now) {
+        sweptAt = now;
+        for (Iterator<Bucket> it = buckets.values().iterator(); it.hasNext(); ) {
+            Bucket bucket = it.next();
+            bucket.refill(now);
+            if (bucket.tokens >= PER_IP_BURST) {
+                it.remove();
+            }
+        }
+    }
+
+    // Writes the rejection and closes. The line is short and the socket fresh, so this never blocks for long.
+    public static void reject(Socket socket, long retryAfterMs) {
+        try (Socket closing = socket) {
+            OutputStream out = closing.getOutputStream();
+            out.write(("SERVER_FULL " + retryAfterMs + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            closing.shutdownOutput(); // Lets the line arrive before the close
+        } catch (IOException e) {
+            Log.debug("Could not reject " + socket + ": " + e.getMessage());
+        }
+    }
+
+    private static final class Bucket {
+        double tokens = PER_IP_BURST;
+        long refilledAt;
+
+        Bucket(long now) {
+            this.refilledAt = now;
+        }
+
+        void refill(long now) {
+            tokens = Math.min(PER_IP_BURST, tokens + (now - refilledAt) * PER_IP_RATE / 1e9);
+            refilledAt = now;
+        }
+    }
+}
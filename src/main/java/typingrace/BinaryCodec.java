@@ -0,0 +1,274 @@
+package typingrace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Compact binary protocol, used instead of text lines when the client asks for it right after connecting
+// by sending the NEGOTIATION line. The server answers with the same line and both sides switch.
+//
+// Every message is [varint length][type byte][payload], where length covers the type and payload.
+// Strings are a varint byte count followed by UTF-8, so usernames may contain spaces.
+public final class BinaryCodec {
+    public static final int VERSION = 1;
+    public static final String NEGOTIATION = "PROTOCOL BINARY " + VERSION;
+    public static final int MAX_MESSAGE_LENGTH = 64 * 1024;
+
+    public static final byte TEXT = 1; // Either way: string, a line of the text protocol
+    public static final byte REGISTER = 2; // Client: username, password
+    public static final byte LOGIN = 3; // Client: username, password
+    public static final byte LOGIN_RESULT = 4; // Server: success flag, username
+    public static final byte WORD = 5; // Server: word index, seconds allowed, word
+    public static final byte SUBMIT = 6; // Client: typed word
+    public static final byte RESULT = 7; // Server: correct flag, correct words so far
+    public static final byte SCORE_DELTA = 8; // Server: count, then (username, signed delta) per changed score
+    public static final byte WINNER = 9; // Server: username, score
+    public static final byte KEYS = 10; // Client: count, then a signed interval in ms per keystroke, negative for a backspace
+
+    private BinaryCodec() {
+    }
+
+    public static byte[] text(String line) {
+        return new Encoder(TEXT).string(line).finish();
+    }
+
+    public static byte[] register(String username, String password) {
+        return new Encoder(REGISTER).string(username).string(password).finish();
+    }
+
+    public static byte[] login(String username, String password) {
+        return new Encoder(LOGIN).string(username).string(password).finish();
+    }
+
+    public static byte[] loginResult(boolean success, String username) {
+        return new Encoder(LOGIN_RESULT).bool(success).string(username == null ? "" : username).finish();
+    }
+
+    public static byte[] word(int index, int seconds, String word) {
+        return new Encoder(WORD).varint(index).varint(seconds).string(word).finish();
+    }
+
+    public static byte[] submit(String typed) {
+        return new Encoder(SUBMIT).string(typed).finish();
+    }
+
+    public static byte[] keys(int[] events, int count) {
+        Encoder encoder = new Encoder(KEYS).varint(count);
+        for (int i = 0; i < count; i++) {
+            encoder.signedVarint(events[i]);
+        }
+        return encoder.finish();
+    }
+
+    public static byte[] result(boolean correct, int correctCount) {
+        return new Encoder(RESULT).bool(correct).varint(correctCount).finish();
+    }
+
+    public static byte[] scoreDelta(String[] usernames, int[] deltas, int count) {
+        Encoder encoder = new Encoder(SCORE_DELTA).varint(count);
+        for (int i = 0; i < count; i++) {
+            encoder.string(usernames[i]).signedVarint(deltas[i]);
+        }
+        return encoder.finish();
+    }
+
+    public static byte[] winner(String username, int score) {
+        return new Encoder(WINNER).string(username == null ? "" : username).varint(score).finish();
+    }
+
+    // Builds one message; the length prefix is added once the payload size is known
+    private static final class Encoder {
+        private byte[] body = new byte[32];
+        private int length;
+
+        Encoder(byte type) {
+            put(type);
+        }
+
+        Encoder bool(boolean value) {
+            put((byte) (value ? 1 : 0));
+            return this;
+        }
+
+        Encoder varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            put((byte) value);
+            return this;
+        }
+
+        Encoder signedVarint(int value) {
+            return varint((value << 1) ^ (value >> 31)); // Zigzag, small negative deltas stay one byte
+        }
+
+        Encoder string(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, body, length, utf8.length);
+            length += utf8.length;
+            return this;
+        }
+
+        byte[] finish() {
+            int prefix = 1;
+            for (int v = length; (v & ~0x7F) != 0; v >>>= 7) {
+                prefix++;
+            }
+            byte[] message = new byte[prefix + length];
+            int pos = 0;
+            int v = length;
+            while ((v & ~0x7F) != 0) {
+                message[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            message[pos++] = (byte) v;
+            System.arraycopy(body, 0, message, pos, length);
+            return message;
+        }
+
+        private void put(byte b) {
+            ensure(1);
+            body[length++] = b;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > body.length) {
+                body = Arrays.copyOf(body, Math.max(body.length * 2, length + extra));
+            }
+        }
+    }
+
+    // A received message; fields are read in the order the sender wrote them. It is a view of the
+    // decoder's buffer, and the decoder reuses it for every message.
+    public static final class Message {
+        private byte type;
+        private byte[] data;
+        private int pos;
+        private int end;
+
+        Message wrap(byte[] data, int start, int end) {
+            this.type = data[start];
+            this.data = data;
+            this.pos = start + 1;
+            this.end = end;
+            return this;
+        }
+
+        public byte type() {
+            return type;
+        }
+
+        public boolean readBool() throws IOException {
+            return readByte() != 0;
+        }
+
+        public int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        public int readSignedVarint() throws IOException {
+            int raw = readVarint();
+            return (raw >>> 1) ^ -(raw & 1);
+        }
+
+        public String readString() throws IOException {
+            int size = readVarint();
+            if (size < 0 || size > end - pos) {
+                throw new IOException("Malformed string");
+            }
+            String value = new String(data, pos, size, StandardCharsets.UTF_8);
+            pos += size;
+            return value;
+        }
+
+        // Reads a string's length prefix but leaves its UTF-8 bytes undecoded, at array()[position(),
+        // position() + length). They are only valid during the handler call.
+        public int readStringLength() throws IOException {
+            int size = readVarint();
+            if (size < 0 || size > end - pos) {
+                throw new IOException("Malformed string");
+            }
+            return size;
+        }
+
+        public byte[] array() {
+            return data;
+        }
+
+        public int position() {
+            return pos;
+        }
+
+        private byte readByte() throws IOException {
+            if (pos >= end) {
+                throw new IOException("Truncated message");
+            }
+            return data[pos++];
+        }
+    }
+
+    public interface MessageHandler {
+        void handle(Message message) throws IOException;
+    }
+
+    // Reassembles messages from a byte stream that may split or batch them arbitrarily
+    public static final class Decoder {
+        private byte[] buffer = new byte[256];
+        private int length;
+        private final Message message = new Message();
+
+        public void decode(ByteBuffer in, MessageHandler handler) throws IOException {
+            int incoming = in.remaining();
+            if (length + incoming > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + incoming));
+            }
+            in.get(buffer, length, incoming);
+            length += incoming;
+
+            int pos = 0;
+            while (pos < length) {
+                int size = 0;
+                int cursor = pos;
+                int shift = 0;
+                boolean complete = false;
+                while (cursor < length && shift < 35) {
+                    byte b = buffer[cursor++];
+                    size |= (b & 0x7F) << shift;
+                    shift += 7;
+                    if ((b & 0x80) == 0) {
+                        complete = true;
+                        break;
+                    }
+                }
+                if (!complete) {
+                    if (shift >= 35) {
+                        throw new IOException("Malformed length prefix");
+                    }
+                    break; // Length prefix not fully received yet
+                }
+                if (size <= 0 || size > MAX_MESSAGE_LENGTH) {
+                    throw new IOException("Bad message length " + size);
+                }
+                if (length - cursor < size) {
+                    break; // Body not fully received yet
+                }
+                handler.handle(message.wrap(buffer, cursor, cursor + size)); // Only valid during the call
+                pos = cursor + size;
+            }
+            System.arraycopy(buffer, pos, buffer, 0, length - pos);
+            length -= pos;
+        }
+    }
+}
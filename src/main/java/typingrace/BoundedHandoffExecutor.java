@@ -0,0 +1,63 @@
+package typingrace;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Puts the fixed pool's handoff bound in front of an executor that has none, such as one virtual
+// thread per task. A permit is taken when a connection is handed over and given back once its
+// handler starts running, so at most "permits" accepted connections wait for a thread; past that
+// execute throws RejectedExecutionException and the accept loop turns the connection away.
+final class BoundedHandoffExecutor extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final Semaphore waiting;
+
+    BoundedHandoffExecutor(ExecutorService delegate, int permits) {
+        this.delegate = delegate;
+        this.waiting = new Semaphore(permits);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!waiting.tryAcquire()) {
+            throw new RejectedExecutionException("Handoff queue full");
+        }
+        try {
+            delegate.execute(() -> {
+                waiting.release(); // Started: no longer waiting for a thread
+                task.run();
+            });
+        } catch (RejectedExecutionException e) {
+            waiting.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
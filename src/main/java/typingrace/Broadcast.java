@@ -0,0 +1,22 @@
+package typingrace;
+
+// A message for many clients, encoded once per protocol. Text clients get the text frame,
+// clients that negotiated the binary protocol get the binary one.
+public final class Broadcast {
+    private final Frame text;
+    private final Frame binary;
+
+    public Broadcast(Frame text, Frame binary) {
+        this.text = text;
+        this.binary = binary;
+    }
+
+    // A plain text line, wrapped as a TEXT message for binary clients
+    public static Broadcast text(String line) {
+        return new Broadcast(Frame.line(line), Frame.encoded(BinaryCodec.text(line)));
+    }
+
+    public Frame forProtocol(boolean binaryProtocol) {
+        return binaryProtocol ? binary : text;
+    }
+}
@@ -0,0 +1,613 @@
+package typingrace;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ClientHandler implements Runnable {
+    // Where the conversation with the client currently is; lets the same state machine be fed
+    // line by line from a blocking reader or from the NIO event loop
+    private enum State { MENU, REGISTER_USERNAME, REGISTER_PASSWORD, LOGIN_USERNAME, LOGIN_PASSWORD, QUERY_START }
+
+    private static final int MAX_PENDING_INPUT = 64; // Input buffered while a password is being checked
+    private static final int MAX_LEADERBOARD = 100; // Most rows one LEADERBOARD command returns
+    private static final int MAX_KEY_EVENTS = 256; // Keystrokes accepted in one KEYS batch
+    private static final byte[] SUBMIT_PREFIX = "SUBMIT ".getBytes(StandardCharsets.US_ASCII);
+    private static final Metrics.Counter MESSAGES = Metrics.counter("messages.received");
+    private static final Metrics.Histogram HANDLE_TIME = Metrics.histogram("messages.handleTime", 16); // Sampled, a KEYS line takes a few hundred ns
+    private final Socket clientSocket;
+    private final server server;
+    private final Outbound outbound; // Queue that writes to the client without blocking the sender
+    private final FrameWriter frameWriter;
+    private final PrintWriter out;
+    private final LineDecoder lineDecoder = new LineDecoder();
+    private BinaryCodec.Decoder binaryDecoder; // Set once the client negotiated the binary protocol
+    private final BinaryCodec.MessageHandler messageHandler = this::onMessage; // One instance rather than one per read
+    private volatile boolean binaryProtocol = false;
+    private volatile Session session; // Set by the server as soon as the connection is registered
+    private volatile SpectatorChannel spectating; // Room feed this client is watching, if any
+    private volatile boolean disconnecting = false;
+    private State state = State.MENU;
+    private String pendingUsername; // Username typed while registering or logging in
+    private final ReentrantLock inputLock = new ReentrantLock(); // Serializes the reader with password check callbacks
+    private final Queue<Runnable> pendingInput = new ArrayDeque<>(); // Input that arrived while a password was being checked
+    private boolean awaitingVerifier = false;
+    private final int[] keyEvents = new int[MAX_KEY_EVENTS]; // Reused for every KEYS batch
+
+    public ClientHandler(Socket socket, server server, Outbound outbound) {
+        this.clientSocket = socket;
+        this.server = server;
+        this.outbound = outbound;
+        this.frameWriter = new FrameWriter(outbound);
+        this.out = new PrintWriter(frameWriter, true); // Each println becomes one queued frame
+    }
+
+    @Override
+    public void run() {
+        try (InputStream in = clientSocket.getInputStream()) {
+            greet();
+
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                onInput(ByteBuffer.wrap(buffer, 0, read));
+            }
+        } catch (IOException e) {
+            if (Log.isEnabled(Log.Level.DEBUG)) {
+                Log.debug("Connection to " + clientSocket + " ended: " + e.getMessage());
+            }
+        } finally {
+            onDisconnect();
+            try {
+                clientSocket.close();
+            } catch (IOException ex) {
+                Log.warn("Could not close socket");
+            }
+        }
+    }
+
+    void attach(Session session) {
+        this.session = session;
+    }
+
+    public void greet() {
+        if (disconnecting) {
+            return; // Reaped while it waited for a session thread
+        }
+        out.println("Welcome! Do you have an account? (yes/no) /n If you have account that write login to login.");
+    }
+
+    // Bytes from the client, in text or binary protocol depending on what was negotiated
+    public void onInput(ByteBuffer in) throws IOException {
+        session.touch();
+        while (in.hasRemaining()) {
+            if (binaryDecoder != null) {
+                binaryDecoder.decode(in, messageHandler);
+                return;
+            }
+            if (!lineDecoder.nextInPlace(in)) {
+                return;
+            }
+            byte[] line = lineDecoder.line();
+            int length = trimmedLength(line, lineDecoder.lineLength());
+            int prefix = SUBMIT_PREFIX.length;
+            if (length <= prefix || !startsWithIgnoreCase(line, SUBMIT_PREFIX) || !submitInPlace(line, prefix, length - prefix)) {
+                onLine(lineDecoder.text());
+            }
+        }
+    }
+
+    // Length without trailing spaces and control characters, as String.trim would cut them
+    private static int trimmedLength(byte[] line, int length) {
+        while (length > 0 && line[length - 1] >= 0 && line[length - 1] <= ' ') {
+            length--;
+        }
+        return length;
+    }
+
+    // ASCII case-insensitive against an upper-case prefix; the caller checked that line is long enough
+    private static boolean startsWithIgnoreCase(byte[] line, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            byte expected = prefix[i];
+            if (line[i] != expected && !(expected >= 'A' && expected <= 'Z' && line[i] == expected + ('a' - 'A'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The hot path: a SUBMIT checked against the packed word straight from the receive buffer, with
+    // no String, substring or queued task. Returns false when the line has to go the ordinary way,
+    // because a prompt is waiting for an answer or a password check is holding input back.
+    private boolean submitInPlace(byte[] typed, int offset, int length) {
+        inputLock.lock();
+        try {
+            if (awaitingVerifier || state != State.MENU) {
+                return false;
+            }
+            MESSAGES.increment();
+            long started = HANDLE_TIME.start();
+            if (Log.isEnabled(Log.Level.DEBUG)) {
+                Log.debug("Client response: SUBMIT " + new String(typed, offset, length, StandardCharsets.UTF_8));
+            }
+            GameRoom currentRoom = session.getRoom();
+            if (currentRoom != null && session.getState() == Session.State.PLAYING) {
+                currentRoom.submit(session, typed, offset, length);
+            }
+            HANDLE_TIME.recordSince(started);
+            return true;
+        } finally {
+            inputLock.unlock();
+        }
+    }
+
+    public void onLine(String line) {
+        dispatch(() -> handleLine(line));
+    }
+
+    // Runs client input in order; while a password check is running, input waits behind it
+    private void dispatch(Runnable action) {
+        inputLock.lock();
+        try {
+            if (awaitingVerifier) {
+                if (pendingInput.size() < MAX_PENDING_INPUT) {
+                    pendingInput.add(action);
+                } else {
+                    Log.warn("Dropping input from " + clientSocket + ", too much sent while logging in");
+                }
+                return;
+            }
+            action.run();
+        } finally {
+            inputLock.unlock();
+        }
+    }
+
+    // Called on a verifier thread once the password check is done
+    private void resumeInput(Runnable completion) {
+        inputLock.lock();
+        try {
+            awaitingVerifier = false;
+            completion.run();
+            Runnable next;
+            while (!awaitingVerifier && (next = pendingInput.poll()) != null) {
+                next.run();
+            }
+        } finally {
+            inputLock.unlock();
+        }
+    }
+
+    private void handleLine(String line) {
+        MESSAGES.increment();
+        long started = HANDLE_TIME.start();
+        try {
+            handleCommand(line);
+        } finally {
+            HANDLE_TIME.recordSince(started);
+        }
+    }
+
+    private void handleCommand(String line) {
+        if (Log.isEnabled(Log.Level.DEBUG)) {
+            Log.debug("Client response: " + line);
+        }
+        if (BinaryCodec.NEGOTIATION.equals(line.trim())) {
+            out.println(BinaryCodec.NEGOTIATION); // Acknowledge in text, everything after is binary
+            frameWriter.useBinaryProtocol();
+            binaryProtocol = true;
+            binaryDecoder = new BinaryCodec.Decoder();
+            return;
+        }
+        handleClientInput(line.trim());
+    }
+
+    private void onMessage(BinaryCodec.Message message) throws IOException {
+        switch (message.type()) {
+            case BinaryCodec.TEXT:
+                onLine(message.readString());
+                break;
+            case BinaryCodec.REGISTER: {
+                String username = message.readString();
+                String password = message.readString();
+                dispatch(() -> handleRegistration(username, password));
+                break;
+            }
+            case BinaryCodec.LOGIN: {
+                String username = message.readString();
+                String password = message.readString();
+                dispatch(() -> handleLogin(username, password));
+                break;
+            }
+            case BinaryCodec.KEYS: {
+                inputLock.lock(); // keyEvents is shared with text KEYS lines
+                try {
+                    int count = Math.min(message.readVarint(), MAX_KEY_EVENTS);
+                    for (int i = 0; i < count; i++) {
+                        keyEvents[i] = message.readSignedVarint();
+                    }
+                    recordKeys(count); // Straight to the room: keystrokes don't wait behind a password check
+                } finally {
+                    inputLock.unlock();
+                }
+                break;
+            }
+            case BinaryCodec.SUBMIT: {
+                int length = message.readStringLength();
+                if (!submitInPlace(message.array(), message.position(), length)) {
+                    String typed = new String(message.array(), message.position(), length, StandardCharsets.UTF_8);
+                    dispatch(() -> handleSubmit(typed));
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unexpected message type " + message.type());
+        }
+    }
+
+    public void onDisconnect() {
+        SpectatorChannel watching = spectating;
+        if (watching != null) {
+            stopSpectating(watching);
+        }
+        server.unregisterClient(session); // Lets the matchmaker backfill the seat
+    }
+
+    public void send(String message) {
+        out.println(message);
+    }
+
+    public boolean send(Broadcast broadcast) {
+        return outbound.offer(broadcast.forProtocol(binaryProtocol)); // Encoded once and shared between clients
+    }
+
+    public int outboundBacklog() {
+        return outbound.backlog();
+    }
+
+    public boolean isSpectating(SpectatorChannel channel) {
+        return spectating == channel;
+    }
+
+    public boolean isWatching() {
+        return spectating != null;
+    }
+
+    // Tells the client why and closes once the line is written
+    public void disconnect(String reason) {
+        if (disconnecting) {
+            return;
+        }
+        disconnecting = true;
+        out.println(reason);
+        outbound.closeAfterFlush();
+    }
+
+    // Switches this client to the room's spectator feed
+    private void spectate(SpectatorChannel channel) {
+        SpectatorChannel watching = spectating;
+        if (watching != null) {
+            stopSpectating(watching);
+        }
+        spectating = channel; // Set first so the room stops sending to us directly
+        if (!channel.subscribe(this)) {
+            spectating = null;
+            out.println("SPECTATE_END " + channel.getRoomId());
+        }
+    }
+
+    // Also called by the channel when it drops this client or closes
+    public void stopSpectating(SpectatorChannel channel) {
+        if (spectating == channel) {
+            spectating = null;
+        }
+        channel.unsubscribe(this);
+    }
+
+    private void handleClientInput(String line) {
+        switch (state) {
+            case REGISTER_USERNAME:
+                pendingUsername = line;
+                out.println("Please register. Enter password:");
+                state = State.REGISTER_PASSWORD;
+                return;
+            case REGISTER_PASSWORD:
+                handleRegistration(pendingUsername, line);
+                return;
+            case LOGIN_USERNAME:
+                pendingUsername = line;
+                out.println("Please login. Enter password:");
+                state = State.LOGIN_PASSWORD;
+                return;
+            case LOGIN_PASSWORD:
+                handleLogin(pendingUsername, line);
+                return;
+            case QUERY_START:
+                queryGameStart(line);
+                return;
+            default:
+                break;
+        }
+
+        if ("no".equalsIgnoreCase(line)) {
+            out.println("Please register. Enter username:");
+            state = State.REGISTER_USERNAME;
+        } else if ("login".equalsIgnoreCase(line)) {
+            out.println("Please login. Enter username:");
+            state = State.LOGIN_USERNAME;
+        } else if (isCommand(line, "SUBMIT")) {
+            handleSubmit(line.length() > 7 ? line.substring(7) : "");
+        } else if ("QUIT".equalsIgnoreCase(line)) {
+            handleQuit();
+        } else if ("PLAY_AGAIN".equalsIgnoreCase(line)) {
+            handlePlayAgain();
+        } else if (isCommand(line, "LEADERBOARD")) {
+            handleLeaderboard(line.substring(11).trim());
+        } else if (isCommand(line, "RANK")) {
+            handleRank(line.substring(4).trim());
+        } else if (isCommand(line, "KEYS")) {
+            handleKeys(line, 4);
+        } else if (isCommand(line, "STATS")) {
+            handleStats(line.substring(5).trim());
+        } else if (isCommand(line, "SPECTATE")) {
+            handleSpectate(line.substring(8).trim());
+        } else if (isCommand(line, "RESUME")) {
+            handleResume(line.substring(6).trim());
+        }
+    }
+
+    // RESUME <token> takes back a seat after a dropped connection or a server restart
+    private void handleResume(String token) {
+        if (session.getRoom() != null || token.isEmpty() || !server.resume(session, token)) {
+            out.println("RESUME_FAILED That seat is no longer held.");
+        }
+    }
+
+    private static boolean isCommand(String line, String command) {
+        return line.regionMatches(true, 0, command, 0, command.length())
+                && (line.length() == command.length() || line.charAt(command.length()) == ' ');
+    }
+
+    // LEADERBOARD [RECENT|SPEED] [n]: the top n players by correct words, all-time or in the recent
+    // window, or by their best words per minute
+    private void handleLeaderboard(String arguments) {
+        Leaderboard.Kind kind = Leaderboard.Kind.ALL_TIME;
+        int count = 10;
+        for (String argument : arguments.split(" +")) {
+            if ("RECENT".equalsIgnoreCase(argument)) {
+                kind = Leaderboard.Kind.RECENT;
+            } else if ("SPEED".equalsIgnoreCase(argument)) {
+                kind = Leaderboard.Kind.SPEED;
+            } else if (!argument.isEmpty()) {
+                try {
+                    count = Math.max(1, Math.min(MAX_LEADERBOARD, Integer.parseInt(argument)));
+                } catch (NumberFormatException e) {
+                    out.println("Usage: LEADERBOARD [RECENT|SPEED] [n]");
+                    return;
+                }
+            }
+        }
+        List<RankTree.Entry> top = Leaderboard.shared().top(count, kind);
+        StringBuilder board = new StringBuilder("LEADERBOARD").append(kind == Leaderboard.Kind.ALL_TIME ? "" : " " + kind)
+                .append(' ').append(top.size());
+        int rank = 1;
+        for (RankTree.Entry entry : top) {
+            board.append('\n').append(rank++).append(' ').append(entry.name).append(' ').append(points(kind, entry.points));
+        }
+        out.println(board); // One frame for the whole table
+    }
+
+    // SPECTATE <roomId> watches a room, SPECTATE on its own stops watching
+    private void handleSpectate(String argument) {
+        if (argument.isEmpty()) {
+            SpectatorChannel watching = spectating;
+            if (watching != null) {
+                stopSpectating(watching);
+                out.println("SPECTATE_END " + watching.getRoomId());
+            }
+            return;
+        }
+        GameRoom target;
+        try {
+            target = server.getRoom(Integer.parseInt(argument));
+        } catch (NumberFormatException e) {
+            target = null;
+        }
+        if (target == null) {
+            out.println("No such room: " + argument);
+        } else if (target == session.getRoom() && session.getState() == Session.State.PLAYING) {
+            out.println("You are racing in room " + target.getId());
+        } else {
+            spectate(target.spectators());
+        }
+    }
+
+    // Speeds are kept in tenths of a word per minute
+    private static String points(Leaderboard.Kind kind, long points) {
+        return kind == Leaderboard.Kind.SPEED ? points / 10 + "." + points % 10 : Long.toString(points);
+    }
+
+    // RANK [user]: where a player stands, all-time, in the recent window and by speed
+    private void handleRank(String username) {
+        if (username.isEmpty()) {
+            username = session.getUsername();
+            if (username == null) {
+                out.println("Usage: RANK user");
+                return;
+            }
+        }
+        StringBuilder line = new StringBuilder("RANK ").append(username);
+        for (Leaderboard.Kind kind : Leaderboard.Kind.values()) {
+            line.append(' ').append(standing(kind, Leaderboard.shared().rank(username, kind)));
+        }
+        out.println(line);
+    }
+
+    // "rank/players:points", or "-" when the player has no finished match there
+    private static String standing(Leaderboard.Kind kind, Leaderboard.Standing standing) {
+        return standing == null ? "-" : standing.rank + "/" + standing.of + ":" + points(kind, standing.points);
+    }
+
+    // STATS [user] shows a player's typing over every finished game, STATS ROOM <id> the current round of a room
+    private void handleStats(String argument) {
+        if (argument.regionMatches(true, 0, "ROOM ", 0, 5)) {
+            GameRoom target;
+            try {
+                target = server.getRoom(Integer.parseInt(argument.substring(5).trim()));
+            } catch (NumberFormatException e) {
+                target = null;
+            }
+            out.println(target == null ? "No such room: " + argument.substring(5).trim()
+                    : "STATS ROOM " + target.getId() + " " + target.keystrokes().describeRoom());
+            return;
+        }
+        String username = argument.isEmpty() ? session.getUsername() : argument;
+        String stats = username == null ? null : KeystrokeLog.describeUser(username);
+        out.println(stats == null ? "No typing stats for " + (username == null ? "you yet" : username) : "STATS " + username + " " + stats);
+    }
+
+    // KEYS <interval> <interval>...: keystroke timings of the word being typed, in ms, negative for a backspace
+    private void handleKeys(String line, int start) {
+        int count = 0;
+        int value = 0;
+        boolean negative = false;
+        boolean inNumber = false;
+        for (int i = start; i <= line.length() && count < keyEvents.length; i++) {
+            char c = i < line.length() ? line.charAt(i) : ' ';
+            if (c >= '0' && c <= '9') {
+                value = Math.min(1_000_000, value * 10 + (c - '0'));
+                inNumber = true;
+            } else if (c == '-' && !inNumber) {
+                negative = true;
+            } else {
+                if (inNumber) {
+                    keyEvents[count++] = negative ? -value : value;
+                }
+                value = 0;
+                negative = false;
+                inNumber = false;
+            }
+        }
+        recordKeys(count);
+    }
+
+    // Hands the decoded batch in keyEvents to the room; nothing here allocates
+    private void recordKeys(int count) {
+        GameRoom currentRoom = session.getRoom();
+        if (currentRoom != null && session.getState() == Session.State.PLAYING && count > 0) {
+            currentRoom.keystrokes().record(currentRoom.seatOf(session), keyEvents, count);
+        }
+    }
+
+    // Caller holds the input lock
+    private void handleRegistration(String username, String password) {
+        state = State.MENU;
+        pendingUsername = null;
+        awaitingVerifier = true; // Input waits until the password is hashed
+        try {
+            Accounts.shared().register(username, password).whenComplete((created, error) -> resumeInput(() -> {
+                if (error != null) {
+                    out.println("Registration failed, please try again.");
+                } else if (!created) {
+                    out.println("That username is taken. Answer no to pick another one.");
+                } else {
+                    out.println("Type login to Login.");
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            awaitingVerifier = false;
+            out.println("Server busy, please register again in a moment.");
+        }
+    }
+
+    // Caller holds the input lock
+    private void handleLogin(String username, String password) {
+        state = State.MENU;
+        pendingUsername = null;
+        awaitingVerifier = true; // Input waits until the password is checked
+        try {
+            Accounts.shared().login(username, password).whenComplete((success, error) -> resumeInput(() -> {
+                if (error == null && success) {
+                    completeLogin(username);
+                } else if (binaryProtocol) {
+                    outbound.offer(Frame.encoded(BinaryCodec.loginResult(false, username)));
+                } else {
+                    out.println("Login failed. Connection will close.");
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            awaitingVerifier = false;
+            out.println("Server busy, please log in again in a moment.");
+        }
+    }
+
+    private void completeLogin(String username) {
+        server.login(session, username);
+        if (binaryProtocol) {
+            outbound.offer(Frame.encoded(BinaryCodec.loginResult(true, username)));
+        } else {
+            out.println("Login successful. Your username is: " + username);
+        }
+        out.println("Do you want to play the game? (yes/no)");
+        state = State.QUERY_START;
+    }
+
+    private void queryGameStart(String response) {
+        state = State.MENU;
+        if ("yes".equalsIgnoreCase(response)) {
+            out.println("Waiting for other players to join...");
+            server.confirmRegistration(session);
+        } else {
+            out.println("You chose not to play the game.");
+        }
+    }
+
+    public void startGame(GameRoom room) {
+        session.setState(Session.State.PLAYING);
+        SpectatorChannel watching = spectating;
+        if (watching != null) {
+            stopSpectating(watching); // Racing again
+        }
+        out.println("GAME_START " + room.getId()); // The client opens its game window
+    }
+
+    void sendWord(RoundMessages messages, int index, int seconds, String word) {
+        outbound.offer(messages.word(index, seconds, word, binaryProtocol)); // Encoded once for the room
+    }
+
+    public void sendResult(boolean correct, int correctCount) {
+        send(RoundMessages.result(correct, correctCount));
+    }
+
+    public void sendGameOver(TypingEngine.Result result) {
+        out.println("GAME_OVER " + result.correctCount + " " + result.averageMillis + " " + String.join(",", result.incorrectWords));
+    }
+
+    private void handleQuit() {
+        String username = session.getUsername();
+        GameRoom currentRoom = session.getRoom();
+        if (username != null && currentRoom != null) {
+            currentRoom.quit(session); // Mark the score as 0 for quitting client
+            server.markAsViewer(session);
+            out.println("You have quit the game. You will remain as a viewer.");
+            spectate(currentRoom.spectators()); // The rest of the round comes from the room's spectator feed
+        }
+    }
+
+    private void handleSubmit(String typed) {
+        GameRoom currentRoom = session.getRoom();
+        if (currentRoom != null && session.getState() == Session.State.PLAYING) {
+            currentRoom.submit(session, typed); // The room's engine decides if the word was right and in time
+        }
+    }
+
+    private void handlePlayAgain() {
+        server.markReadyToPlayAgain(session);
+    }
+}
@@ -0,0 +1,58 @@
+package typingrace;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntSupplier;
+
+// Game node side of a cluster: tells the Router every HEARTBEAT_MS that this server is alive, where
+// players should connect and how many sessions it holds. A node that stops sending is taken out of
+// rotation by the router; its rooms are lost, every other node carries on.
+public final class ClusterNode {
+    static final long HEARTBEAT_MS = Long.getLong("typingrace.cluster.heartbeatMs", 1000);
+    private static final String ROUTER = System.getProperty("typingrace.router"); // host:port, unset outside a cluster
+    private static final String HOST = System.getProperty("typingrace.cluster.host", "localhost"); // Where the router sends players
+    private static final int CAPACITY = Integer.getInteger("typingrace.cluster.capacity", 1000); // Sessions this node should hold
+
+    private ClusterNode() {
+    }
+
+    public static void start(int port, IntSupplier sessions) {
+        if (ROUTER == null) {
+            return;
+        }
+        int colon = ROUTER.lastIndexOf(':');
+        InetAddress router;
+        int routerPort;
+        try {
+            router = InetAddress.getByName(ROUTER.substring(0, colon));
+            routerPort = Integer.parseInt(ROUTER.substring(colon + 1));
+        } catch (IOException | RuntimeException e) {
+            Log.warn("Not joining a cluster, bad typingrace.router " + ROUTER + ": " + e.getMessage());
+            return;
+        }
+        Thread heartbeat = new Thread(() -> {
+            try (DatagramSocket socket = new DatagramSocket()) {
+                while (true) {
+                    byte[] message = ("NODE " + HOST + " " + port + " " + sessions.getAsInt() + " " + CAPACITY)
+                            .getBytes(StandardCharsets.UTF_8);
+                    try {
+                        socket.send(new DatagramPacket(message, message.length, router, routerPort));
+                    } catch (IOException e) {
+                        Log.debug("Heartbeat not sent: " + e.getMessage()); // The next one may get through
+                    }
+                    Thread.sleep(HEARTBEAT_MS);
+                }
+            } catch (IOException e) {
+                Log.error("Cluster heartbeat stopped", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "cluster-heartbeat");
+        heartbeat.setDaemon(true);
+        heartbeat.start();
+        Log.info("Joined cluster at " + ROUTER + " as " + HOST + ":" + port);
+    }
+}
@@ -0,0 +1,251 @@
+package typingrace;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.util.function.Consumer;
+
+// Client-side game window. The server decides which word comes next, how long it may take and
+// whether it was typed correctly; this window only shows that and sends back what was typed.
+public class DisplayWords extends JFrame {
+    private static final long serialVersionUID = 1L;
+    private JLabel wordLabel;
+    private JLabel timerLabel;
+    private JLabel liveScoresLabel;
+    private JLabel statusLabel;
+    private JTextField inputField;
+    private Timer countdownTimer; // One display timer, restarted for every word
+    private int remainingTime = 30;
+    private int correctCount = 0;
+    private boolean gameCompleted = false;
+    private boolean isViewer = false;
+    private Consumer<String> commandSender; // Sends a line of the text protocol to the server
+    private String userName;
+    private JButton quitButton;
+    private JButton playAgainButton;
+    private final int[] keyIntervals = new int[64]; // Keystrokes not yet sent: ms since the previous one, negative for a backspace
+    private int keyCount = 0;
+    private long lastKeyNanos = System.nanoTime(); // When the word appeared or the last key was pressed
+
+    public DisplayWords(String userName, Consumer<String> commandSender) {
+        this.userName = userName;
+        this.commandSender = commandSender;
+
+        setTitle("Word Display" + (userName != null ? " - " + userName : ""));
+        setSize(400, 400);
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setLocationRelativeTo(null);
+        setLayout(new BorderLayout());
+
+        wordLabel = new JLabel("", SwingConstants.CENTER);
+        wordLabel.setFont(new Font("Serif", Font.PLAIN, 24));
+        add(wordLabel, BorderLayout.CENTER);
+
+        timerLabel = new JLabel("", SwingConstants.CENTER);
+        timerLabel.setFont(new Font("Serif", Font.PLAIN, 18));
+        add(timerLabel, BorderLayout.NORTH);
+
+        liveScoresLabel = new JLabel("", SwingConstants.CENTER);
+        liveScoresLabel.setFont(new Font("Serif", Font.PLAIN, 16));
+
+        statusLabel = new JLabel("", SwingConstants.CENTER);
+        statusLabel.setFont(new Font("Serif", Font.PLAIN, 14));
+
+        inputField = new JTextField();
+        inputField.setFont(new Font("Serif", Font.PLAIN, 24));
+        inputField.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                submitInput();
+            }
+        });
+        inputField.addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_BACK_SPACE) {
+                    recordKey(true);
+                }
+            }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                if (!Character.isISOControl(e.getKeyChar())) {
+                    recordKey(false);
+                }
+            }
+        });
+
+        JPanel southPanel = new JPanel(new GridLayout(3, 1));
+        southPanel.add(statusLabel);
+        southPanel.add(liveScoresLabel);
+        southPanel.add(inputField);
+        add(southPanel, BorderLayout.SOUTH);
+
+        quitButton = new JButton("Quit");
+        quitButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleQuit();
+                quitButton.setVisible(false); // Hide the quit button after it's clicked
+            }
+        });
+
+        JButton leaveServerButton = new JButton("Leave Server");
+        leaveServerButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                disconnectFromServer();
+            }
+        });
+
+        playAgainButton = new JButton("Play Again");
+        playAgainButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handlePlayAgain();
+            }
+        });
+        playAgainButton.setVisible(false); // Initially hidden
+
+        JPanel buttonPanel = new JPanel();
+        buttonPanel.add(quitButton);
+        buttonPanel.add(leaveServerButton);
+        buttonPanel.add(playAgainButton); // Add play-again button
+        add(buttonPanel, BorderLayout.EAST);
+
+        countdownTimer = new Timer(1000, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (remainingTime > 0) {
+                    remainingTime--;
+                }
+                timerLabel.setText("Time remaining: " + remainingTime + " seconds");
+                if (remainingTime <= 0) {
+                    countdownTimer.stop(); // The server times the word out and sends the next one
+                }
+            }
+        });
+    }
+
+    private void disconnectFromServer() {
+        System.exit(0);
+        JOptionPane.showMessageDialog(this, "Disconnected from the server.");
+    }
+
+    private void handleQuit() {
+        isViewer = true;
+        countdownTimer.stop();
+        inputField.setEnabled(false);
+        commandSender.accept("QUIT"); // The server records the score as 0
+    }
+
+    private void handlePlayAgain() {
+        commandSender.accept("PLAY_AGAIN");
+        playAgainButton.setVisible(false); // Hide the play-again button after it's clicked
+    }
+
+    private void submitInput() {
+        if (isViewer || gameCompleted) {
+            return;
+        }
+        commandSender.accept(takeKeys() + "SUBMIT " + inputField.getText()); // Timings first, in the same write as the word
+        inputField.setText("");
+    }
+
+    private void recordKey(boolean backspace) {
+        if (isViewer || gameCompleted) {
+            return;
+        }
+        long now = System.nanoTime();
+        int interval = (int) Math.min(60_000, (now - lastKeyNanos) / 1_000_000);
+        lastKeyNanos = now;
+        keyIntervals[keyCount++] = backspace ? -Math.max(1, interval) : interval;
+        if (keyCount == keyIntervals.length) {
+            sendKeys();
+        }
+    }
+
+    private void sendKeys() {
+        String keys = takeKeys();
+        if (!keys.isEmpty()) {
+            commandSender.accept(keys.substring(0, keys.length() - 1));
+        }
+    }
+
+    // The KEYS line for everything typed since the last one, with its newline, or "" if nothing was
+    private String takeKeys() {
+        if (keyCount == 0) {
+            return "";
+        }
+        StringBuilder line = new StringBuilder("KEYS");
+        for (int i = 0; i < keyCount; i++) {
+            line.append(' ').append(keyIntervals[i]);
+        }
+        keyCount = 0;
+        return line.append('\n').toString();
+    }
+
+    // A new round started in the room
+    public void startRound() {
+        correctCount = 0;
+        gameCompleted = false;
+        isViewer = false;
+        inputField.setEnabled(true);
+        quitButton.setVisible(true);
+        playAgainButton.setVisible(false);
+        statusLabel.setText("");
+        liveScoresLabel.setText("");
+    }
+
+    // Watching a room: follow the racers, no typing
+    public void spectate() {
+        isViewer = true;
+        countdownTimer.stop();
+        inputField.setEnabled(false);
+        quitButton.setVisible(false);
+        playAgainButton.setVisible(false);
+        liveScoresLabel.setText("");
+    }
+
+    public void showWord(int index, int seconds, String word) {
+        sendKeys(); // Whatever was typed before a timeout
+        lastKeyNanos = System.nanoTime();
+        wordLabel.setText(word);
+        remainingTime = seconds;
+        timerLabel.setText("Time remaining: " + remainingTime + " seconds");
+        countdownTimer.restart();
+    }
+
+    public void showResult(boolean correct, int correctCount) {
+        this.correctCount = correctCount;
+        statusLabel.setText(correct ? "Correct!" : "Incorrect or Timeout! Try the next word.");
+    }
+
+    public void showGameOver(int correctCount, long averageMillis, String incorrectWords) {
+        this.correctCount = correctCount;
+        gameCompleted = true;
+        countdownTimer.stop();
+        JOptionPane.showMessageDialog(this, "<html>You typed " + correctCount + " words correctly.<br> Incorrect words: [" + incorrectWords +
+                "].<br> Average typing speed: " + String.format("%.2f", averageMillis / 1000.0) + " seconds per word.</html>");
+        playAgainButton.setVisible(true); // Show the play-again button after the game ends
+    }
+
+    public void updateWord(String word, String playerPerformance, String liveScores) {
+        if (isViewer) {
+            wordLabel.setText(word); // Viewers follow what the racers are typing
+            timerLabel.setText(playerPerformance);
+        }
+        liveScoresLabel.setText(liveScores);
+    }
+
+    public int getScore() {
+        return correctCount;
+    }
+
+    public boolean isGameCompleted() {
+        return gameCompleted;
+    }
+}
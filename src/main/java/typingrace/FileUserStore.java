@@ -0,0 +1,144 @@
+package typingrace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Durable accounts: every registration is appended to a log, and every SNAPSHOT_EVERY registrations
+// the whole table is written to a snapshot and the log starts over. Startup reads the snapshot and
+// replays whatever the log holds after it.
+public class FileUserStore implements UserStore {
+    private static final int SNAPSHOT_EVERY = Integer.getInteger("typingrace.users.snapshotEvery", 10000);
+
+    private final Path snapshotFile;
+    private final Path logFile;
+    private final Map<String, PasswordHash> users = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private FileOutputStream logStream;
+    private Writer log;
+    private int appendedSinceSnapshot = 0;
+
+    public FileUserStore(Path baseName) throws IOException {
+        this.snapshotFile = Path.of(baseName + ".snapshot");
+        this.logFile = Path.of(baseName + ".log");
+        long started = System.nanoTime();
+        load(snapshotFile);
+        appendedSinceSnapshot = load(logFile);
+        openLog(true);
+        Log.info("Loaded " + users.size() + " accounts in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+    }
+
+    @Override
+    public boolean add(String username, PasswordHash hash) {
+        writeLock.lock();
+        try {
+            if (users.putIfAbsent(username, hash) != null) {
+                return false;
+            }
+            try {
+                log.write(line(username, hash));
+                log.flush();
+                logStream.getFD().sync(); // The account must survive a crash once we said it exists
+            } catch (IOException e) {
+                users.remove(username);
+                Log.warn("Could not save account: " + e.getMessage());
+                return false;
+            }
+            if (++appendedSinceSnapshot >= SNAPSHOT_EVERY) {
+                try {
+                    writeSnapshot();
+                } catch (IOException e) {
+                    // The account is safe in the log, which stays open; the next batch tries the snapshot again
+                    Log.warn("Could not write the account snapshot: " + e.getMessage());
+                    appendedSinceSnapshot = 0;
+                }
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public PasswordHash find(String username) {
+        return users.get(username);
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+
+    // Writes the full table next to the old snapshot, syncs it, swaps it in, then empties the log.
+    // Until the swap the old snapshot and log are untouched. Caller holds the write lock.
+    private void writeSnapshot() throws IOException {
+        Path temp = Path.of(snapshotFile + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                Writer writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, PasswordHash> entry : users.entrySet()) {
+                writer.write(line(entry.getKey(), entry.getValue()));
+            }
+            writer.flush();
+            stream.getFD().sync(); // On disk before it replaces the old snapshot and the log is emptied
+        }
+        Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openLog(false); // Everything in the log is in the snapshot now
+        appendedSinceSnapshot = 0;
+    }
+
+    // The old log stays in use until the new stream is open
+    private void openLog(boolean append) throws IOException {
+        FileOutputStream stream = new FileOutputStream(logFile.toFile(), append);
+        Writer previous = log;
+        logStream = stream;
+        log = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+        if (previous != null) {
+            try {
+                previous.close();
+            } catch (IOException e) {
+                Log.warn("Could not close the old account log: " + e.getMessage());
+            }
+        }
+    }
+
+    private int load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int loaded = 0;
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf(' ');
+                if (separator < 0) {
+                    continue; // Torn last line of a crashed write
+                }
+                try {
+                    String username = new String(decoder.decode(line.substring(0, separator)), StandardCharsets.UTF_8);
+                    users.put(username, PasswordHash.decode(line.substring(separator + 1)));
+                    loaded++;
+                } catch (IllegalArgumentException e) {
+                    Log.warn("Skipping damaged account entry in " + file);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    // Usernames are Base64 encoded so spaces and newlines in them can't break the format
+    private static String line(String username, PasswordHash hash) {
+        return Base64.getUrlEncoder().encodeToString(username.getBytes(StandardCharsets.UTF_8)) + " " + hash.encode() + "\n";
+    }
+}
@@ -0,0 +1,51 @@
+package typingrace;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// One encoded message. A frame is encoded once and the same bytes are shared, read-only,
+// by every connection it is sent to.
+public final class Frame {
+    private final byte[] bytes;
+    private final ByteBuffer shared;
+
+    private Frame(byte[] bytes) {
+        this.bytes = bytes;
+        this.shared = ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    public static Frame line(String line) {
+        return new Frame((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Already encoded bytes; several binary messages can travel in one frame
+    public static Frame encoded(byte[]... messages) {
+        if (messages.length == 1) {
+            return new Frame(messages[0]);
+        }
+        int total = 0;
+        for (byte[] message : messages) {
+            total += message.length;
+        }
+        byte[] joined = new byte[total];
+        int pos = 0;
+        for (byte[] message : messages) {
+            System.arraycopy(message, 0, joined, pos, message.length);
+            pos += message.length;
+        }
+        return new Frame(joined);
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    // A private view with its own position over the shared bytes
+    public ByteBuffer buffer() {
+        return shared.duplicate();
+    }
+
+    byte[] bytes() {
+        return bytes; // Callers must not modify the array
+    }
+}
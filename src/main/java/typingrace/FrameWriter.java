@@ -0,0 +1,54 @@
+package typingrace;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Lets ClientHandler and DisplayWords keep using a PrintWriter; every flush becomes one frame
+// offered to the connection's outbound queue. Once the client switched to the binary protocol
+// each line is wrapped in a TEXT message instead.
+public class FrameWriter extends Writer {
+    private final Outbound outbound;
+    private final StringBuilder pending = new StringBuilder();
+    private volatile boolean binary = false;
+
+    public FrameWriter(Outbound outbound) {
+        this.outbound = outbound;
+    }
+
+    public void useBinaryProtocol() {
+        synchronized (lock) {
+            flush(); // Anything written before the switch still goes out as text
+            binary = true;
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        synchronized (lock) {
+            pending.append(cbuf, off, len);
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (lock) {
+            if (pending.length() == 0) {
+                return;
+            }
+            String text = pending.toString();
+            pending.setLength(0);
+            if (!binary) {
+                outbound.offer(Frame.encoded(text.getBytes(StandardCharsets.UTF_8)));
+                return;
+            }
+            for (String line : text.split("\r?\n")) {
+                outbound.offer(Frame.encoded(BinaryCodec.text(line)));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
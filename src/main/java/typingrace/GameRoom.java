@@ -0,0 +1,520 @@
+package typingrace;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// One running race. The room owns its players, their scores and the play-again votes, so any
+// number of rooms can run side by side without seeing each other's state. The words and their
+// deadlines come from the room's TypingEngine; clients only render what the room tells them.
+public class GameRoom implements TypingEngine.Listener {
+    static final int WORDS_PER_GAME = Integer.getInteger("typingrace.game.words", 30);
+    private static final Metrics.Counter GAMES_STARTED = Metrics.counter("games.started");
+    private static final Metrics.Histogram FANOUT_TIME = Metrics.histogram("broadcast.fanoutTime");
+    private static final Long FIXED_SEED = Long.getLong("typingrace.game.seed"); // Replays the same words in every room when set
+    private static final long RESUME_GRACE_MS = Long.getLong("typingrace.resume.graceMs", 30000); // How long a dropped player's seat is kept
+    private static final SecureRandom TOKENS = new SecureRandom();
+
+    private final int id;
+    private final List<Session> players; // Everyone who was seated when the room was created; the index is the seat
+    private final String[] tokens; // Resume token of each seat, for the life of the room
+    private final TimerWheel.Timeout[] held; // Grace timer of each seat kept for a player who dropped mid-round; guarded by lock
+    private final Set<Session> present = ConcurrentHashMap.newKeySet(); // Players still connected
+    private final Map<String, Integer> scores = new LinkedHashMap<>(); // Username to final correct words this round; live counts are in liveScores
+    private final Map<String, Integer> speeds = new LinkedHashMap<>(); // Net words per minute in tenths of those who finished
+    private final KeystrokeLog keystrokes = new KeystrokeLog(); // Keystroke telemetry of this round
+    private final Map<String, TypingEngine.Result> results = new LinkedHashMap<>(); // Final results this round, in seat order
+    private final SpectatorChannel spectators; // Read-only feed for quitters and anyone watching with SPECTATE
+    private final LiveScores liveScores; // Batched score updates while the round runs
+    private final Set<String> done = new HashSet<>(); // Players who finished, quit or left this round
+    private final Set<Session> playAgainVotes = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile TypingEngine engine;
+    private volatile RoundMessages messages; // WORD messages of the engine's round, shared by its seats
+    private boolean finished = false; // True once this round's winner was announced
+    private boolean restarting = false; // The last play-again vote is in and one caller is starting the next round
+
+    public GameRoom(int id, List<Session> players) {
+        this.id = id;
+        this.players = new CopyOnWriteArrayList<>(players); // A seat changes hands only when its player resumes
+        this.present.addAll(players);
+        this.tokens = new String[players.size()];
+        for (int seat = 0; seat < tokens.length; seat++) {
+            byte[] token = new byte[16];
+            TOKENS.nextBytes(token);
+            tokens[seat] = Base64.getUrlEncoder().withoutPadding().encodeToString(token);
+        }
+        this.held = new TimerWheel.Timeout[players.size()];
+        this.spectators = new SpectatorChannel(id);
+        this.liveScores = new LiveScores(this::broadcast, spectators);
+    }
+
+    // A round that was running when the server stopped. Nobody is connected yet: every unfinished
+    // seat is held for its player, with its clock stopped until they resume.
+    public GameRoom(RoomJournal.SavedRoom saved) {
+        this.id = saved.id;
+        this.players = new CopyOnWriteArrayList<>();
+        String[] seatNames = new String[saved.names.size()];
+        for (int seat = 0; seat < seatNames.length; seat++) {
+            Session placeholder = new Session(0, null, null); // Stands in for the player until they resume
+            seatNames[seat] = saved.names.get(seat).isEmpty() ? null : saved.names.get(seat);
+            placeholder.setUsername(seatNames[seat]);
+            placeholder.setState(Session.State.CLOSED);
+            players.add(placeholder);
+        }
+        this.tokens = saved.tokens;
+        this.held = new TimerWheel.Timeout[seatNames.length];
+        this.spectators = new SpectatorChannel(id);
+        this.liveScores = new LiveScores(this::broadcast, spectators);
+        int[] words = new int[saved.words.size()];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = i;
+        }
+        TypingEngine roundEngine = new TypingEngine(WordCorpus.Snapshot.of(saved.words), words, seatNames.length, this);
+        liveScores.reset(seatNames);
+        keystrokes.reset(seatNames.length);
+        lock.lock();
+        try {
+            messages = new RoundMessages(roundEngine.words());
+            engine = roundEngine;
+            for (int seat = 0; seat < seatNames.length; seat++) {
+                RoomJournal.SavedRoom.Seat state = saved.seats[seat];
+                String username = seatNames[seat];
+                long[] times = state.typingTimes();
+                boolean over = state.forfeited || state.index >= words.length;
+                roundEngine.restore(seat, state.index, state.correctCount, times, state.incorrectWords, over, saved.remainingMillis(seat));
+                liveScores.set(seat, state.forfeited ? 0 : state.correctCount, null);
+                if (username == null) {
+                    continue;
+                }
+                if (over) {
+                    TypingEngine.Result result = state.forfeited ? TypingEngine.Result.forfeit()
+                            : new TypingEngine.Result(state.correctCount, times, new ArrayList<>(state.incorrectWords));
+                    scores.put(username, result.correctCount);
+                    results.put(username, result);
+                    done.add(username);
+                } else {
+                    scores.put(username, 0);
+                    results.put(username, TypingEngine.Result.forfeit()); // Replaced when the player finishes
+                    hold(seat);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public List<Session> getPlayers() {
+        return players;
+    }
+
+    public SpectatorChannel spectators() {
+        return spectators;
+    }
+
+    public KeystrokeLog keystrokes() {
+        return keystrokes;
+    }
+
+    public int seatOf(Session session) {
+        return players.indexOf(session);
+    }
+
+    public void start() {
+        WordCorpus.Snapshot corpus = WordCorpus.shared().current(); // Loaded once, shared with every other room
+        long seed = FIXED_SEED != null ? FIXED_SEED : ThreadLocalRandom.current().nextLong();
+        int[] sequence = WordSelector.forCorpus(corpus).sequence(Math.min(WORDS_PER_GAME, corpus.size()), seed); // Same words for the whole room
+        Log.info("Room " + id + " word seed: " + seed);
+        TypingEngine roundEngine = new TypingEngine(corpus, sequence, players.size(), this);
+        String[] seatNames = new String[players.size()];
+        TypingEngine previous;
+        lock.lock();
+        try {
+            scores.clear();
+            speeds.clear();
+            results.clear();
+            done.clear();
+            playAgainVotes.clear();
+            finished = false;
+            restarting = false;
+            previous = engine;
+            messages = new RoundMessages(roundEngine.words());
+            engine = roundEngine;
+            for (int seat = 0; seat < players.size(); seat++) {
+                Session session = players.get(seat);
+                String username = session.getUsername();
+                seatNames[seat] = username;
+                if (username != null) {
+                    scores.put(username, 0);
+                    results.put(username, TypingEngine.Result.forfeit()); // Replaced when the player finishes
+                    if (!present.contains(session)) {
+                        done.add(username); // Left before this round, counts as a forfeit
+                    }
+                }
+            }
+            liveScores.reset(seatNames);
+            keystrokes.reset(players.size());
+        } finally {
+            lock.unlock();
+        }
+        if (previous != null) {
+            previous.stop(); // Its word timers must not fire into the new round
+        }
+        List<String> words = new ArrayList<>();
+        for (int index : sequence) {
+            words.add(corpus.word(index));
+        }
+        RoomJournal.shared().roundStarted(id, words, seatNames, tokens); // Before any answer can be journaled
+        spectators.startRound(Broadcast.text("ROUND_START " + id));
+        GAMES_STARTED.increment();
+        Log.info("Starting game in room " + id + " for: " + players);
+        for (int seat = 0; seat < players.size(); seat++) {
+            Session session = players.get(seat);
+            ClientHandler handler = session.getHandler();
+            if (present.contains(session)) {
+                handler.startGame(this); // Tell the client to open its game window
+                handler.send("RESUME_TOKEN " + tokens[seat]); // Lets the client take the seat back after a dropped connection
+                roundEngine.start(seat);
+            }
+        }
+    }
+
+    public void submit(Session session, String typed) {
+        byte[] bytes = typed.getBytes(StandardCharsets.UTF_8);
+        submit(session, bytes, 0, bytes.length);
+    }
+
+    // The typed word as UTF-8 bytes, checked in place
+    public void submit(Session session, byte[] typed, int offset, int length) {
+        int seat = players.indexOf(session);
+        TypingEngine current = engine;
+        if (seat >= 0 && current != null) {
+            current.submit(seat, typed, offset, length);
+        }
+    }
+
+    // The player stopped racing but stays to watch; their score becomes 0
+    public void quit(Session session) {
+        int seat = players.indexOf(session);
+        TypingEngine current = engine;
+        if (seat >= 0 && current != null) {
+            current.forfeit(seat);
+            liveScores.set(seat, 0, null);
+            RoomJournal.shared().forfeited(id, seat);
+        }
+        String username = session.getUsername();
+        keystrokes.finish(seat, username); // What they typed still counts towards their typing stats
+        if (username != null) {
+            finishPlayer(username, TypingEngine.Result.forfeit());
+        }
+    }
+
+    @Override
+    public void onWord(int seat, int index, int seconds, String word) {
+        players.get(seat).getHandler().sendWord(messages, index, seconds, word);
+    }
+
+    @Override
+    public void onResult(int seat, int index, String word, boolean correct, int correctCount, long millis) {
+        RoomJournal.shared().answered(id, seat, index, correct, millis);
+        Session session = players.get(seat);
+        session.getHandler().sendResult(correct, correctCount);
+        String username = session.getUsername();
+        lock.lock();
+        try {
+            if (username == null || finished || done.contains(username)) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (correct) {
+            keystrokes.addCorrectChars(seat, word.length());
+        }
+        liveScores.set(seat, correctCount, word);
+    }
+
+    @Override
+    public void onFinished(int seat, TypingEngine.Result result) {
+        Session session = players.get(seat);
+        ClientHandler handler = session.getHandler();
+        String username = session.getUsername();
+        String typing = keystrokes.finish(seat, username);
+        handler.sendGameOver(result);
+        handler.send("TYPING " + typing);
+        if (username != null) {
+            int speed = keystrokes.wordsPerMinuteTenths(seat);
+            if (speed >= 0) {
+                lock.lock();
+                try {
+                    speeds.put(username, speed);
+                } finally {
+                    lock.unlock();
+                }
+            }
+            finishPlayer(username, result);
+        }
+    }
+
+    // Stores a player's final count and announces the winner once every present player is done
+    private void finishPlayer(String username, TypingEngine.Result result) {
+        Map.Entry<String, Integer> winner;
+        lock.lock();
+        try {
+            if (finished) {
+                return;
+            }
+            scores.put(username, result.correctCount);
+            results.put(username, result);
+            done.add(username);
+            if (Log.isEnabled(Log.Level.DEBUG)) {
+                Log.debug("Room " + id + " scores: " + scores);
+            }
+            winner = finishIfAllDone();
+        } finally {
+            lock.unlock();
+        }
+        announce(winner);
+    }
+
+    // Counts only once the round is over; the vote that completes the room starts the next round
+    public void votePlayAgain(Session session) {
+        lock.lock();
+        try {
+            if (!finished || !present.contains(session)) {
+                return;
+            }
+            playAgainVotes.add(session);
+            if (!claimRestart()) {
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        start();
+    }
+
+    // True for exactly one caller once every present player voted. Caller holds the lock.
+    private boolean claimRestart() {
+        if (restarting || !finished || present.isEmpty() || !playAgainVotes.containsAll(present)) {
+            return false;
+        }
+        restarting = true;
+        return true;
+    }
+
+    // A player disconnected. Mid-round their seat is held for RESUME_GRACE_MS in case they come
+    // back with its token; otherwise, or once that runs out, the round finishes without them.
+    public void leave(Session session) {
+        int seat = players.indexOf(session);
+        lock.lock();
+        try {
+            present.remove(session);
+            playAgainVotes.remove(session);
+            String username = session.getUsername();
+            if (seat >= 0 && username != null && !finished && engine != null && !done.contains(username)) {
+                hold(seat);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        forfeit(seat, session.getUsername());
+    }
+
+    // Caller holds the lock
+    private void hold(int seat) {
+        held[seat] = TimerWheel.shared().schedule(() -> {
+            lock.lock();
+            try {
+                if (held[seat] == null) {
+                    return; // The player came back
+                }
+                held[seat] = null;
+            } finally {
+                lock.unlock();
+            }
+            forfeit(seat, players.get(seat).getUsername());
+            if (isEmpty()) {
+                server.retireRoom(this);
+            }
+        }, RESUME_GRACE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void forfeit(int seat, String username) {
+        TypingEngine current = engine;
+        if (seat >= 0 && current != null) {
+            current.forfeit(seat); // Stops the player's word timer
+            liveScores.set(seat, 0, null);
+        }
+        keystrokes.finish(seat, username);
+        Map.Entry<String, Integer> winner = null;
+        boolean restart;
+        lock.lock();
+        try {
+            if (username != null && !finished && !done.contains(username)) {
+                scores.put(username, 0); // Counts as a forfeit
+                results.put(username, TypingEngine.Result.forfeit());
+                done.add(username);
+                RoomJournal.shared().forfeited(id, seat);
+                winner = present.isEmpty() ? null : finishIfAllDone();
+            }
+            restart = winner == null && !playAgainVotes.isEmpty() && claimRestart(); // The one who left was the last vote missing
+        } finally {
+            lock.unlock();
+        }
+        if (winner != null) {
+            announce(winner);
+        } else if (restart) {
+            start();
+        }
+    }
+
+    public String[] tokens() {
+        return tokens.clone();
+    }
+
+    // Gives a held seat to the player's new connection. Returns the seat's username, or null if the
+    // token is not for a seat of this room that is waiting for its player.
+    public String resume(String token, Session session) {
+        int seat = Arrays.asList(tokens).indexOf(token);
+        if (seat < 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            if (held[seat] == null) {
+                return null;
+            }
+            held[seat].cancel();
+            held[seat] = null;
+            String username = players.set(seat, session).getUsername();
+            present.add(session);
+            return username;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The resumed player's client opens its game window again and gets the scores and its current word
+    public void rejoin(Session session) {
+        int seat = players.indexOf(session);
+        ClientHandler handler = session.getHandler();
+        handler.startGame(this);
+        handler.send(liveScores.snapshot());
+        engine.rejoin(seat);
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            for (TimerWheel.Timeout timeout : held) {
+                if (timeout != null) {
+                    return false; // Someone may still come back
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return present.isEmpty();
+    }
+
+    // The room is retired; its spectators are told the feed ended
+    public void close() {
+        lock.lock();
+        try {
+            for (int seat = 0; seat < held.length; seat++) {
+                if (held[seat] != null) {
+                    held[seat].cancel();
+                    held[seat] = null;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        RoomJournal.shared().roundEnded(id);
+        spectators.close();
+    }
+
+    // To the racers; players who quit follow the room through the spectator channel instead
+    private void broadcast(Broadcast broadcast) {
+        long started = System.nanoTime();
+        for (Session session : present) {
+            ClientHandler handler = session.getHandler();
+            if (!handler.isSpectating(spectators)) {
+                handler.send(broadcast);
+            }
+        }
+        FANOUT_TIME.recordSince(started);
+    }
+
+    private void announce(Map.Entry<String, Integer> winner) {
+        if (winner != null) {
+            Map<String, TypingEngine.Result> match;
+            Map<String, Integer> matchSpeeds;
+            lock.lock();
+            try {
+                match = new LinkedHashMap<>(results);
+                matchSpeeds = new LinkedHashMap<>(speeds);
+            } finally {
+                lock.unlock();
+            }
+            MatchHistory.shared().record(new MatchHistory.Match(id, System.currentTimeMillis(), match, matchSpeeds));
+            liveScores.flush(); // Last scores before the winner
+            for (Session session : present) {
+                session.getHandler().stopSpectating(spectators); // Players who quit get the winner and can vote to play again
+            }
+            Log.info("Room " + id + " winner determined: " + winner.getKey() + " with score: " + winner.getValue());
+            broadcastWinner(winner.getKey(), winner.getValue());
+        }
+    }
+
+    private void broadcastWinner(String winner, int score) {
+        String prompt = "Do you want to play again? (yes/no)";
+        broadcast(new Broadcast(Frame.line("The Winner is " + winner + " with score: " + score + "\n" + prompt),
+                Frame.encoded(BinaryCodec.winner(winner, score), BinaryCodec.text(prompt))));
+        spectators.publish(new Broadcast(Frame.line("The Winner is " + winner + " with score: " + score),
+                Frame.encoded(BinaryCodec.winner(winner, score))));
+    }
+
+    // Ends the round once every present player and every held seat is done and returns the winner.
+    // Caller holds the lock.
+    Map.Entry<String, Integer> finishIfAllDone() {
+        for (Session session : present) {
+            String username = session.getUsername();
+            if (username == null || !done.contains(username)) {
+                return null;
+            }
+        }
+        for (int seat = 0; seat < held.length; seat++) {
+            if (held[seat] != null && !done.contains(players.get(seat).getUsername())) {
+                return null;
+            }
+        }
+        finished = true;
+        RoomJournal.shared().roundEnded(id);
+        Map.Entry<String, Integer> winner = null;
+        for (Map.Entry<String, Integer> entry : scores.entrySet()) {
+            if (winner == null || entry.getValue() > winner.getValue()) {
+                winner = Map.entry(entry.getKey(), entry.getValue());
+            }
+        }
+        return winner;
+    }
+}
@@ -0,0 +1,164 @@
+package typingrace;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Keystroke telemetry of one room. Clients report batches of inter-key intervals and backspaces;
+// they are packed into a preallocated long ring, so recording allocates nothing, and folded into
+// per-seat TypingStats whenever the ring fills up or someone asks. When a player's game ends their
+// stats are merged into a per-user total kept for the STATS command.
+public final class KeystrokeLog {
+    private static final int CAPACITY = 4096; // Events buffered before they are folded in; a power of two
+    private static final long BACKSPACE = 1L << 32;
+    private static final Map<String, TypingStats> lifetime = new HashMap<>(); // Username to every finished game; guarded by lifetimeLock
+    private static final ReentrantLock lifetimeLock = new ReentrantLock();
+
+    private final long[] ring = new long[CAPACITY]; // seat << 33 | backspace flag << 32 | interval ms
+    private int head = 0;
+    private int size = 0;
+    private TypingStats[] seats = new TypingStats[0];
+    private boolean[] merged = new boolean[0]; // Seats already added to their player's total this round
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // A new round with the given number of seats
+    public void reset(int seatCount) {
+        lock.lock();
+        try {
+            head = 0;
+            size = 0;
+            if (seats.length != seatCount) {
+                seats = new TypingStats[seatCount];
+                for (int i = 0; i < seatCount; i++) {
+                    seats[i] = new TypingStats();
+                }
+            } else {
+                for (TypingStats stats : seats) {
+                    stats.clear();
+                }
+            }
+            merged = new boolean[seatCount];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Intervals are in ms; a negative value is a backspace after that many ms
+    public void record(int seat, int[] events, int count) {
+        lock.lock();
+        try {
+            if (seat < 0 || seat >= seats.length || merged[seat]) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                if (size == CAPACITY) {
+                    fold();
+                }
+                int event = events[i];
+                long packed = ((long) seat << 33) | (event < 0 ? BACKSPACE : 0) | (event < 0 ? -(long) event : event);
+                ring[(head + size) & (CAPACITY - 1)] = packed;
+                size++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void addCorrectChars(int seat, int count) {
+        lock.lock();
+        try {
+            if (seat >= 0 && seat < seats.length) {
+                seats[seat].addCorrectChars(count);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The seat's game is over: adds it to the player's total and returns this game's stats as one line
+    public String finish(int seat, String username) {
+        TypingStats game = new TypingStats();
+        lock.lock();
+        try {
+            if (seat < 0 || seat >= seats.length) {
+                return null;
+            }
+            fold();
+            game.merge(seats[seat]);
+            if (merged[seat]) {
+                return game.describe();
+            }
+            merged[seat] = true;
+        } finally {
+            lock.unlock();
+        }
+        if (username != null && game.keys() > 0) {
+            lifetimeLock.lock();
+            try {
+                lifetime.computeIfAbsent(username, name -> new TypingStats()).merge(game);
+            } finally {
+                lifetimeLock.unlock();
+            }
+        }
+        return game.describe();
+    }
+
+    // Net words per minute of the seat this round, in tenths, or -1 if nothing was typed
+    public int wordsPerMinuteTenths(int seat) {
+        lock.lock();
+        try {
+            fold();
+            if (seat < 0 || seat >= seats.length || seats[seat].keys() == 0) {
+                return -1;
+            }
+            return (int) Math.round(seats[seat].wordsPerMinute() * 10);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The whole room this round, every seat together
+    public String describeRoom() {
+        TypingStats room = new TypingStats();
+        lock.lock();
+        try {
+            fold();
+            for (TypingStats stats : seats) {
+                room.merge(stats);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return room.describe();
+    }
+
+    public String describeSeat(int seat) {
+        lock.lock();
+        try {
+            fold();
+            return seat < 0 || seat >= seats.length ? null : seats[seat].describe();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Every finished game of the player, or null if there is none
+    public static String describeUser(String username) {
+        lifetimeLock.lock();
+        try {
+            TypingStats stats = lifetime.get(username);
+            return stats == null ? null : stats.describe();
+        } finally {
+            lifetimeLock.unlock();
+        }
+    }
+
+    // Streams the buffered events into the per-seat stats. Caller holds the lock.
+    private void fold() {
+        for (; size > 0; size--) {
+            long packed = ring[head];
+            head = (head + 1) & (CAPACITY - 1);
+            seats[(int) (packed >>> 33)].record((int) (packed & 0xFFFFFFFFL), (packed & BACKSPACE) != 0);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Local TCP proxy that holds every chunk for a fixed delay in each direction, so round trips can be
+// measured on loopback as if the server were far away. It counts the chunks it forwards: each one
+// is a write on the other side, which shows how well both ends coalesce.
+// Run with "java LatencyProxy" and point clients or LoadBot at -Dtypingrace.proxy.port.
+public final class LatencyProxy {
+    private static final int PORT = Integer.getInteger("typingrace.proxy.port", 1240);
+    private static final String HOST = System.getProperty("typingrace.host", "localhost"); // The server behind the proxy
+    private static final int TARGET_PORT = Integer.getInteger("typingrace.port", 1234);
+    private static final long DELAY_MS = Long.getLong("typingrace.proxy.delayMs", 25); // One way, so a round trip costs twice this
+    private static final Metrics.Counter TO_SERVER = Metrics.counter("proxy.chunksToServer");
+    private static final Metrics.Counter TO_CLIENT = Metrics.counter("proxy.chunksToClient");
+
+    private LatencyProxy() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        MetricsEndpoint.start();
+        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+            Log.info("Proxying " + PORT + " to " + HOST + ":" + TARGET_PORT + " with " + DELAY_MS + " ms each way");
+            while (true) {
+                Socket client = serverSocket.accept();
+                try {
+                    Socket server = new Socket(HOST, TARGET_PORT);
+                    client.setTcpNoDelay(true);
+                    server.setTcpNoDelay(true);
+                    pipe(client, server, TO_SERVER);
+                    pipe(server, client, TO_CLIENT);
+                } catch (IOException e) {
+                    Log.warn("Could not reach " + HOST + ":" + TARGET_PORT + ": " + e.getMessage());
+                    client.close();
+                }
+            }
+        }
+    }
+
+    // One thread reads and stamps each chunk, another delivers it once its delay is up; the delay
+    // is the same for every chunk, so they stay in order
+    private static void pipe(Socket from, Socket to, Metrics.Counter chunks) throws IOException {
+        InputStream in = from.getInputStream();
+        OutputStream out = to.getOutputStream();
+        BlockingQueue<Object[]> inFlight = new LinkedBlockingQueue<>(); // {due nanos, bytes}, bytes null at end of stream
+        start(() -> {
+            byte[] buffer = new byte[16 * 1024];
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    inFlight.add(new Object[] {System.nanoTime() + DELAY_MS * 1_000_000, Arrays.copyOf(buffer, read)});
+                }
+            } catch (IOException e) {
+                // Treated like the end of the stream
+            }
+            inFlight.add(new Object[] {System.nanoTime() + DELAY_MS * 1_000_000, null});
+        });
+        start(() -> {
+            try {
+                while (true) {
+                    Object[] chunk = inFlight.take();
+                    long wait = (long) chunk[0] - System.nanoTime();
+                    if (wait > 0) {
+                        Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                    }
+                    if (chunk[1] == null) {
+                        break;
+                    }
+                    out.write((byte[]) chunk[1]);
+                    out.flush();
+                    chunks.increment();
+                }
+            } catch (IOException | InterruptedException e) {
+                // The other side is gone
+            }
+            try {
+                from.close();
+                to.close();
+            } catch (IOException e) {
+                Log.warn("Could not close socket");
+            }
+        });
+    }
+
+    private static void start(Runnable task) {
+        Thread thread = new Thread(task, "latency-proxy");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
@@ -0,0 +1,144 @@
+package typingrace;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Correct words per player, all-time and over a rolling window, and each player's best typing
+// speed. Each board is an order-statistic tree kept up to date as matches are recorded, so top-K
+// and "rank of X" never re-sort anything.
+public final class Leaderboard {
+    private static final long WINDOW_MILLIS = TimeUnit.HOURS.toMillis(Long.getLong("typingrace.leaderboard.windowHours", 24));
+
+    private static final Leaderboard shared = new Leaderboard(WINDOW_MILLIS);
+
+    private final long windowMillis;
+    private final Board allTime = new Board();
+    private final Board recent = new Board();
+    private final Board speed = new Board(); // Best net words per minute in tenths
+    private final ArrayDeque<Points> recentEvents = new ArrayDeque<>(); // Oldest first, dropped from recent as they age out
+    private final ReentrantLock lock = new ReentrantLock();
+
+    Leaderboard(long windowMillis) {
+        this.windowMillis = windowMillis;
+    }
+
+    public static Leaderboard shared() {
+        return shared;
+    }
+
+    public enum Kind { ALL_TIME, RECENT, SPEED }
+
+    public static final class Standing {
+        public final int rank; // 1-based
+        public final long points;
+        public final int of; // Players on the board
+
+        Standing(int rank, long points, int of) {
+            this.rank = rank;
+            this.points = points;
+            this.of = of;
+        }
+    }
+
+    // Adds one finished match: username to correct words, and to words per minute in tenths for
+    // those who typed. Matches arrive in finishing order.
+    public void record(long finishedAt, Map<String, Integer> correctCounts, Map<String, Integer> speeds) {
+        lock.lock();
+        try {
+            for (Map.Entry<String, Integer> entry : correctCounts.entrySet()) {
+                int points = entry.getValue();
+                allTime.add(entry.getKey(), points, 1);
+                recent.add(entry.getKey(), points, 1);
+                recentEvents.addLast(new Points(finishedAt, entry.getKey(), points));
+            }
+            for (Map.Entry<String, Integer> entry : speeds.entrySet()) {
+                speed.raise(entry.getKey(), entry.getValue());
+            }
+            expire(System.currentTimeMillis());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<RankTree.Entry> top(int count, Kind kind) {
+        lock.lock();
+        try {
+            expire(System.currentTimeMillis());
+            return board(kind).tree.range(1, count);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Null if the player has no finished match on that board
+    public Standing rank(String username, Kind kind) {
+        lock.lock();
+        try {
+            expire(System.currentTimeMillis());
+            Board board = board(kind);
+            long[] score = board.scores.get(username);
+            return score == null ? null : new Standing(board.tree.rank(username, score[0]), score[0], board.tree.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Board board(Kind kind) {
+        return kind == Kind.RECENT ? recent : kind == Kind.SPEED ? speed : allTime;
+    }
+
+    // Caller holds the lock
+    private void expire(long now) {
+        while (!recentEvents.isEmpty() && recentEvents.peekFirst().finishedAt <= now - windowMillis) {
+            Points old = recentEvents.pollFirst();
+            recent.add(old.username, -old.points, -1);
+        }
+    }
+
+    private static final class Board {
+        private final Map<String, long[]> scores = new HashMap<>(); // Username to {points, matches}
+        private final RankTree tree = new RankTree();
+
+        void add(String username, long points, int matches) {
+            long[] score = scores.get(username);
+            if (score == null) {
+                score = new long[2];
+                scores.put(username, score);
+            } else {
+                tree.remove(username, score[0]);
+            }
+            score[0] += points;
+            score[1] += matches;
+            if (score[1] <= 0) {
+                scores.remove(username); // Every match they played has aged out
+            } else {
+                tree.insert(username, score[0]);
+            }
+        }
+
+        // Keeps the higher of the current and the new value
+        void raise(String username, long value) {
+            long[] score = scores.get(username);
+            if (score != null && score[0] >= value) {
+                return;
+            }
+            add(username, score == null ? value : value - score[0], score == null ? 1 : 0);
+        }
+    }
+
+    private static final class Points {
+        private final long finishedAt;
+        private final String username;
+        private final int points;
+
+        Points(long finishedAt, String username, int points) {
+            this.finishedAt = finishedAt;
+            this.username = username;
+            this.points = points;
+        }
+    }
+}
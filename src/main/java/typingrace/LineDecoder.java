@@ -0,0 +1,70 @@
+package typingrace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Splits a byte stream into '\n' terminated lines.
+// Bytes of an unfinished line are kept between reads; idle connections hold no buffer at all.
+public class LineDecoder {
+    private static final int MAX_LINE_LENGTH = 8192; // Longest line a client may send
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] partial; // Bytes of the line being assembled
+    private int length;
+    private int lineLength = -1; // Length of the completed line still in partial, -1 while assembling
+
+    // Returns the next complete line, or null once the buffer is used up without finishing one.
+    // Stops right after the line so the caller can hand the rest of the buffer to another decoder.
+    public String next(ByteBuffer in) throws IOException {
+        return nextInPlace(in) ? text() : null;
+    }
+
+    // Like next, but leaves the line in line()[0, lineLength()) instead of building a String.
+    // The bytes stay valid until the next call.
+    public boolean nextInPlace(ByteBuffer in) throws IOException {
+        if (lineLength >= 0) {
+            lineLength = -1;
+            length = 0;
+            if (partial != null && partial.length > INITIAL_CAPACITY) {
+                partial = null; // Give back buffers grown for unusually long lines
+            }
+        }
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (b == '\n') {
+                int end = length;
+                if (end > 0 && partial[end - 1] == '\r') {
+                    end--; // Accept CRLF line endings as well
+                }
+                lineLength = end;
+                return true;
+            }
+            if (length == MAX_LINE_LENGTH) {
+                throw new IOException("Line too long");
+            }
+            if (partial == null) {
+                partial = new byte[INITIAL_CAPACITY];
+            } else if (length == partial.length) {
+                byte[] grown = new byte[Math.min(partial.length * 2, MAX_LINE_LENGTH)];
+                System.arraycopy(partial, 0, grown, 0, length);
+                partial = grown;
+            }
+            partial[length++] = b;
+        }
+        return false;
+    }
+
+    public byte[] line() {
+        return partial;
+    }
+
+    public int lineLength() {
+        return lineLength;
+    }
+
+    // The line nextInPlace found, as a String
+    public String text() {
+        return lineLength == 0 ? "" : new String(partial, 0, lineLength, StandardCharsets.UTF_8);
+    }
+}
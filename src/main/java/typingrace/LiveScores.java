@@ -0,0 +1,146 @@
+package typingrace;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Live scores of one room. A result only stores the seat's count and marks the seat changed; at
+// most once per tick the changed seats go out as one batch, so a burst of submissions in a big
+// room costs one broadcast instead of one full score table per word. Spectators get the same
+// batches through the room's SpectatorChannel.
+public final class LiveScores {
+    private static final long TICK_MS = Long.getLong("typingrace.scores.tickMs", 50); // 20 batches a second, 0 sends every change at once
+
+    private final Consumer<Broadcast> sink; // Delivers a batch to the racers
+    private final SpectatorChannel spectators;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock(); // Keeps batches in order; set() never waits on it
+    private String[] names = new String[0]; // Indexed by seat
+    private int[] scores = new int[0];
+    private int[] sent = new int[0]; // Scores clients were last told about
+    private boolean[] changed = new boolean[0];
+    private int[] changedSeats = new int[0];
+    private int changedCount = 0;
+    private String lastWord = "";
+    private boolean flushScheduled = false;
+
+    public LiveScores(Consumer<Broadcast> sink, SpectatorChannel spectators) {
+        this.sink = sink;
+        this.spectators = spectators;
+    }
+
+    // A new round: everyone is back at 0, and clients clear their tables when the game starts
+    public void reset(String[] seatNames) {
+        lock.lock();
+        try {
+            names = seatNames.clone();
+            scores = new int[names.length];
+            sent = new int[names.length];
+            changed = new boolean[names.length];
+            changedSeats = new int[names.length];
+            changedCount = 0;
+            lastWord = "";
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The word is the one that was just submitted, or null when the score changed otherwise
+    public void set(int seat, int score, String word) {
+        lock.lock();
+        try {
+            if (seat >= names.length || names[seat] == null) {
+                return;
+            }
+            scores[seat] = score;
+            if (word != null) {
+                lastWord = word;
+            }
+            if (!changed[seat]) {
+                changed[seat] = true;
+                changedSeats[changedCount++] = seat;
+            }
+            if (flushScheduled) {
+                return; // Goes out with the batch that is already waiting
+            }
+            flushScheduled = true;
+        } finally {
+            lock.unlock();
+        }
+        if (TICK_MS > 0) {
+            TimerWheel.shared().schedule(this::flush, TICK_MS, TimeUnit.MILLISECONDS);
+        } else {
+            flush();
+        }
+    }
+
+    // Every score sent so far, as one batch for a player who rejoins and starts from an empty table
+    public Broadcast snapshot() {
+        lock.lock();
+        try {
+            String[] seatNames = new String[names.length];
+            int[] totals = new int[names.length];
+            int count = 0;
+            StringBuilder text = new StringBuilder("UPDATE -");
+            for (int seat = 0; seat < names.length; seat++) {
+                if (names[seat] != null) {
+                    seatNames[count] = names[seat];
+                    totals[count++] = sent[seat];
+                    text.append(' ').append(names[seat]).append('=').append(sent[seat]);
+                }
+            }
+            return new Broadcast(Frame.line(text.toString()), Frame.encoded(BinaryCodec.scoreDelta(seatNames, totals, count)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Sends whatever changed right away, e.g. before the winner is announced
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushBatch();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Caller holds the flush lock
+    private void flushBatch() {
+        String[] batchNames;
+        int[] deltas;
+        int[] totals;
+        int count = 0;
+        StringBuilder text;
+        lock.lock();
+        try {
+            flushScheduled = false;
+            batchNames = new String[changedCount];
+            deltas = new int[changedCount];
+            totals = new int[changedCount];
+            text = new StringBuilder("UPDATE ").append(lastWord.isEmpty() ? "-" : lastWord);
+            for (int i = 0; i < changedCount; i++) {
+                int seat = changedSeats[i];
+                changed[seat] = false;
+                int delta = scores[seat] - sent[seat];
+                if (delta != 0) {
+                    sent[seat] = scores[seat];
+                    batchNames[count] = names[seat];
+                    totals[count] = scores[seat];
+                    deltas[count++] = delta;
+                    text.append(' ').append(names[seat]).append('=').append(scores[seat]);
+                }
+            }
+            changedCount = 0;
+        } finally {
+            lock.unlock();
+        }
+        if (count > 0) {
+            // Text clients get the new totals of the changed players, binary clients the deltas. Every batch
+            // is delivered: a skipped one would leave its players stale until they score again.
+            Broadcast batch = new Broadcast(Frame.line(text.toString()), Frame.encoded(BinaryCodec.scoreDelta(batchNames, deltas, count)));
+            sink.accept(batch);
+            spectators.publishScores(batchNames, totals, count, batch);
+        }
+    }
+}
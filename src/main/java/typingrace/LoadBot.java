@@ -0,0 +1,315 @@
+package typingrace;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Headless load generator: many scripted players in one JVM, speaking the same text protocol as
+// the interactive client. Each bot registers, logs in, answers yes, types every word it is shown
+// at its own speed, and then plays again or leaves. Readers run on virtual threads when the JVM
+// has them; typing delays are timers, so a bot's reader never sleeps and reply times stay honest.
+// Run with "java LoadBot" or "java client --bots N"; the typingrace.bot.* properties shape the load.
+public final class LoadBot {
+    private static final String HOST = System.getProperty("typingrace.host", "localhost");
+    private static final int PORT = Integer.getInteger("typingrace.port", 1234);
+    private static final int BOTS = Integer.getInteger("typingrace.bot.count", 100);
+    private static final String PREFIX = System.getProperty("typingrace.bot.prefix", "bot"); // Usernames are prefix + number
+    private static final long RAMP_MS = Long.getLong("typingrace.bot.rampMs", 2000); // Connections are spread over this long
+    private static final double WPM = Double.parseDouble(System.getProperty("typingrace.bot.wpm", "60"));
+    private static final double WPM_SPREAD = Double.parseDouble(System.getProperty("typingrace.bot.wpmSpread", "15")); // Between bots
+    private static final String DISTRIBUTION = System.getProperty("typingrace.bot.distribution", "lognormal"); // fixed, normal or lognormal
+    private static final double KEY_JITTER = Double.parseDouble(System.getProperty("typingrace.bot.keyJitter", "0.35")); // Spread between keys
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("typingrace.bot.errorRate", "0.05")); // Words typed wrong
+    private static final double QUIT_RATE = Double.parseDouble(System.getProperty("typingrace.bot.quitRate", "0")); // Games abandoned midway
+    private static final int ROUNDS = Integer.getInteger("typingrace.bot.rounds", 1); // Games each bot plays before leaving
+    private static final boolean PIPELINE = Boolean.getBoolean("typingrace.bot.pipeline"); // Register, log in and say yes in one write
+
+    private static final Metrics.Histogram CONNECT_TO_LOGIN = Metrics.histogram("bot.connectToLogin");
+    private static final Metrics.Histogram LOGIN_TO_START = Metrics.histogram("bot.loginToGameStart");
+    private static final Metrics.Histogram SUBMIT_TO_UPDATE = Metrics.histogram("bot.submitToUpdate");
+    private static final Metrics.Histogram SUBMIT_TO_RESULT = Metrics.histogram("bot.submitToResult");
+    private static final AtomicInteger connected = new AtomicInteger();
+    private static final AtomicInteger playing = new AtomicInteger();
+    private static final AtomicInteger gamesFinished = new AtomicInteger();
+    private static final AtomicInteger failures = new AtomicInteger();
+    private static final AtomicInteger rejected = new AtomicInteger(); // SERVER_FULL replies; the bot waits and connects again
+
+    private final String username;
+    private final double wordsPerMinute; // This bot's own speed
+    private final SplittableRandom random;
+    private final ScheduledExecutorService keyboard; // Fires the typed words when they are due
+    private final ReentrantLock writeLock = new ReentrantLock(); // The reader and the keyboard timer both write
+    private Socket socket;
+    private OutputStream out;
+    private String redirect; // Set when a cluster router sends us to a game node
+    private long retryAfter; // Set when the server turned us away
+    private long connectedAt;
+    private long loggedInAt;
+    private volatile long submittedAt; // 0 when no submission is waiting for its RESULT or UPDATE
+    private volatile boolean resultSeen;
+    private int roundsPlayed = 0;
+    private boolean quitThisRound;
+
+    LoadBot(int number, ScheduledExecutorService keyboard) {
+        this.username = PREFIX + number;
+        this.random = new SplittableRandom(ThreadLocalRandom.current().nextLong());
+        this.wordsPerMinute = Math.max(5, WPM + WPM_SPREAD * gaussian());
+        this.keyboard = keyboard;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        run(args.length > 0 ? Integer.parseInt(args[0]) : BOTS);
+    }
+
+    public static void run(int bots) throws InterruptedException {
+        ExecutorService readers = newReaderExecutor();
+        ScheduledExecutorService keyboard = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread thread = new Thread(r, "bot-keyboard");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "bot-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.println("Starting " + bots + " bots against " + HOST + ":" + PORT + " at " + WPM + " wpm (" + DISTRIBUTION + ")");
+        long started = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(bots);
+        reporter.scheduleAtFixedRate(() -> System.out.println(progress()), 5, 5, TimeUnit.SECONDS);
+        for (int i = 0; i < bots; i++) {
+            LoadBot bot = new LoadBot(i, keyboard);
+            long delay = bots > 1 ? RAMP_MS * i / (bots - 1) : 0;
+            keyboard.schedule(() -> readers.execute(() -> {
+                try {
+                    bot.play();
+                } finally {
+                    done.countDown();
+                }
+            }), delay, TimeUnit.MILLISECONDS);
+        }
+        done.await();
+        reporter.shutdownNow();
+        System.out.println(progress());
+        System.out.println("Finished in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        System.out.print(report());
+        System.exit(0);
+    }
+
+    private static ExecutorService newReaderExecutor() {
+        try {
+            // Looked up reflectively so the sources still compile on Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.out.println("Virtual threads need Java 21 or newer, using one platform thread per bot");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private static String progress() {
+        return "connected=" + connected.get() + " playing=" + playing.get() + " games=" + gamesFinished.get() + " failures=" + failures.get()
+                + " rejected=" + rejected.get();
+    }
+
+    private static String report() {
+        StringBuilder text = new StringBuilder();
+        for (Object[] row : new Object[][] {{"connect -> login", CONNECT_TO_LOGIN}, {"login -> GAME_START", LOGIN_TO_START}, {"SUBMIT -> RESULT", SUBMIT_TO_RESULT},
+                {"SUBMIT -> UPDATE", SUBMIT_TO_UPDATE}}) {
+            Metrics.Histogram histogram = (Metrics.Histogram) row[1];
+            text.append(String.format(Locale.ROOT, "%-20s n=%d p50=%.1fms p90=%.1fms p99=%.1fms max=%.1fms%n", row[0], histogram.count(),
+                    histogram.percentile(50) / 1e6, histogram.percentile(90) / 1e6, histogram.percentile(99) / 1e6, histogram.max() / 1e6));
+        }
+        return text.toString();
+    }
+
+    private void play() {
+        String host = HOST;
+        int port = PORT;
+        while (host != null) {
+            redirect = null;
+            retryAfter = 0;
+            try (Socket connection = new Socket(host, port)) {
+                socket = connection;
+                connectedAt = System.nanoTime();
+                socket.setTcpNoDelay(true);
+                out = socket.getOutputStream();
+                connected.incrementAndGet();
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!onLine(line)) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                failures.incrementAndGet();
+            } finally {
+                connected.decrementAndGet();
+            }
+            if (retryAfter > 0) {
+                pause(retryAfter);
+                host = HOST; // Through the router again, if there is one
+                port = PORT;
+                continue;
+            }
+            String[] target = redirect != null ? redirect.split(" ") : null; // REDIRECT <host> <port> from a cluster router
+            host = target != null ? target[1] : null;
+            port = target != null ? Integer.parseInt(target[2]) : 0;
+        }
+    }
+
+    // Reacts to one server line; false ends the session
+    private boolean onLine(String line) throws IOException {
+        if (line.startsWith("REDIRECT ")) {
+            redirect = line;
+            return false;
+        } else if (line.startsWith("SERVER_FULL ")) {
+            rejected.incrementAndGet();
+            retryAfter = Math.max(1, Long.parseLong(line.substring(12).trim()));
+            return false;
+        } else if (line.startsWith("Welcome!")) {
+            String password = "pw-" + username;
+            // Pipelined, a taken username still ends in MENU, where the queued "login" picks up
+            send(PIPELINE ? "no\n" + username + "\n" + password + "\nlogin\n" + username + "\n" + password + "\nyes" : "no");
+        } else if (PIPELINE && (line.startsWith("Please ") || line.startsWith("Type login") || line.startsWith("That username is taken")
+                || line.startsWith("Do you want to play the game?"))) {
+            return true; // Already answered
+        } else if (PIPELINE && line.startsWith("Server busy")) {
+            failures.incrementAndGet(); // The rest of the pipeline no longer lines up with the prompts
+            return false;
+        } else if (line.startsWith("Please register. Enter username:") || line.startsWith("Please login. Enter username:")) {
+            send(username);
+        } else if (line.startsWith("Please register. Enter password:") || line.startsWith("Please login. Enter password:")) {
+            send("pw-" + username);
+        } else if (line.startsWith("Type login to Login.") || line.startsWith("That username is taken")) {
+            send("login"); // Taken usually means an earlier run registered this bot already
+        } else if (line.startsWith("Server busy")) {
+            pause(100 + random.nextInt(400));
+            send(line.contains("register") ? "no" : "login");
+        } else if (line.startsWith("Login failed") || line.startsWith("Registration failed")) {
+            failures.incrementAndGet();
+            return false;
+        } else if (line.startsWith("Login successful")) {
+            loggedInAt = System.nanoTime();
+            CONNECT_TO_LOGIN.recordSince(connectedAt);
+        } else if (line.startsWith("Do you want to play the game?")) {
+            send("yes");
+        } else if (line.startsWith("GAME_START")) {
+            if (roundsPlayed == 0) {
+                LOGIN_TO_START.recordSince(loggedInAt); // Later rounds wait for the others' votes instead
+            }
+            playing.incrementAndGet();
+            quitThisRound = random.nextDouble() < QUIT_RATE;
+        } else if (line.startsWith("WORD ")) {
+            String[] parts = line.split(" ", 4);
+            type(Integer.parseInt(parts[1]), parts.length > 3 ? parts[3] : "");
+        } else if (line.startsWith("RESULT ")) {
+            long submitted = submittedAt;
+            if (submitted != 0 && !resultSeen) {
+                resultSeen = true;
+                SUBMIT_TO_RESULT.recordSince(submitted);
+            }
+        } else if (line.startsWith("UPDATE ")) {
+            long submitted = submittedAt;
+            if (submitted != 0 && line.contains(" " + username + "=")) {
+                submittedAt = 0;
+                SUBMIT_TO_UPDATE.recordSince(submitted);
+            }
+        } else if (line.startsWith("GAME_OVER") || line.startsWith("You have quit the game")) {
+            playing.decrementAndGet();
+            gamesFinished.incrementAndGet();
+        } else if (line.startsWith("Do you want to play again?")) {
+            if (++roundsPlayed >= ROUNDS) {
+                return false;
+            }
+            send("PLAY_AGAIN");
+        }
+        return true;
+    }
+
+    // Types the word on the keyboard timer: KEYS with the simulated intervals, then SUBMIT
+    private void type(int index, String word) {
+        if (quitThisRound && index > 0 && random.nextInt(10) == 0) {
+            quitThisRound = false;
+            keyboard.execute(() -> send("QUIT"));
+            return;
+        }
+        boolean mistake = random.nextDouble() < ERROR_RATE;
+        String typed = mistake ? word + "x" : word;
+        double meanKeyMillis = 60_000.0 / (wordsPerMinute * 5);
+        StringBuilder keys = new StringBuilder("KEYS");
+        long total = 0;
+        for (int i = 0; i < typed.length() + 1; i++) { // The extra key is Enter
+            long interval = Math.max(1, Math.round(keyDelay(meanKeyMillis)));
+            total += interval;
+            if (i < typed.length()) {
+                keys.append(' ').append(interval);
+            }
+        }
+        String batch = keys.toString();
+        keyboard.schedule(() -> {
+            resultSeen = false;
+            submittedAt = System.nanoTime();
+            send(batch + "\nSUBMIT " + typed); // One write for both, like the game window
+        }, total, TimeUnit.MILLISECONDS);
+    }
+
+    private double keyDelay(double mean) {
+        switch (DISTRIBUTION) {
+            case "fixed":
+                return mean;
+            case "normal":
+                return mean * (1 + KEY_JITTER * gaussian());
+            default: // Log-normal: mostly steady with the occasional long pause, like real typing
+                double sigma = KEY_JITTER;
+                return mean * Math.exp(sigma * gaussian() - sigma * sigma / 2);
+        }
+    }
+
+    private double gaussian() {
+        double u = 1 - random.nextDouble(); // Box-Muller
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+
+    private void send(String line) {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            writeLock.lock();
+            try {
+                out.write(bytes);
+                out.flush();
+            } finally {
+                writeLock.unlock();
+            }
+        } catch (IOException e) {
+            failures.incrementAndGet();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already gone
+            }
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
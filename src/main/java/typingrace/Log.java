@@ -0,0 +1,105 @@
+package typingrace;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Server log. Callers only format and queue a line; one background thread writes to the console,
+// so a slow terminal never holds up a game thread. DEBUG and INFO go to standard output, WARN and
+// ERROR to standard error. Lines below typingrace.log.level are skipped
+// before they are built when the caller checks isEnabled, and a full queue drops lines instead of
+// blocking.
+public final class Log {
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final Level LEVEL = Level.valueOf(System.getProperty("typingrace.log.level", "INFO").toUpperCase());
+    private static final BlockingQueue<Line> pending = new ArrayBlockingQueue<>(Integer.getInteger("typingrace.log.queue", 8192));
+    private static final Metrics.Counter dropped = Metrics.counter("log.dropped");
+
+    static {
+        Thread writer = new Thread(Log::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private Log() {
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.compareTo(LEVEL) >= 0;
+    }
+
+    public static void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public static void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public static void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public static void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    private static void log(Level level, String message, Throwable error) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        String line = level == Level.INFO ? message : level + " " + message;
+        if (error != null) {
+            StringWriter trace = new StringWriter();
+            error.printStackTrace(new PrintWriter(trace));
+            line = line + System.lineSeparator() + trace.toString().trim();
+        }
+        if (!pending.offer(new Line(line, level.compareTo(Level.WARN) >= 0 ? System.err : System.out))) {
+            dropped.increment();
+        }
+    }
+
+    private static void writeLoop() {
+        List<Line> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            pending.drainTo(batch);
+            PrintStream stream = batch.get(0).stream;
+            for (Line line : batch) {
+                if (line.stream != stream) {
+                    write(stream, text); // Lines keep their order across the two streams
+                    stream = line.stream;
+                }
+                text.append(line.text).append(System.lineSeparator());
+            }
+            write(stream, text); // One console write per run of lines on the same stream
+            batch.clear();
+        }
+    }
+
+    private static void write(PrintStream stream, StringBuilder text) {
+        stream.print(text);
+        stream.flush();
+        text.setLength(0);
+    }
+
+    private static final class Line {
+        final String text;
+        final PrintStream stream;
+
+        Line(String text, PrintStream stream) {
+            this.text = text;
+            this.stream = stream;
+        }
+    }
+}
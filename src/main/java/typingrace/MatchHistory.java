@@ -0,0 +1,199 @@
+package typingrace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+// Every finished match is appended to a log before anything else forgets it: who played, their
+// correct count, the time spent on each word and the words they missed. One writer thread owns
+// the file and syncs once per batch, so rooms never wait on the disk, and only then hands the
+// batch to the leaderboard, so nothing is ranked that a restart would lose. Startup replays the
+// log into the leaderboard.
+public final class MatchHistory {
+    private static final MatchHistory shared = create();
+
+    private final Leaderboard leaderboard;
+    private final LinkedBlockingQueue<Match> pending = new LinkedBlockingQueue<>();
+    private final FileOutputStream logStream; // Null when matches are kept in memory only
+    private final Writer log;
+
+    MatchHistory(Leaderboard leaderboard) {
+        this.leaderboard = leaderboard;
+        this.logStream = null;
+        this.log = null;
+    }
+
+    MatchHistory(Path logFile, Leaderboard leaderboard) throws IOException {
+        this.leaderboard = leaderboard;
+        long started = System.nanoTime();
+        int loaded = replay(logFile);
+        Log.info("Replayed " + loaded + " matches in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        this.logStream = new FileOutputStream(logFile.toFile(), true);
+        this.log = new BufferedWriter(new OutputStreamWriter(logStream, StandardCharsets.UTF_8));
+        Thread writer = new Thread(this::writeLoop, "match-history-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static MatchHistory shared() {
+        return shared;
+    }
+
+    private static MatchHistory create() {
+        if ("memory".equalsIgnoreCase(System.getProperty("typingrace.matches.store", "file"))) {
+            return new MatchHistory(Leaderboard.shared());
+        }
+        try {
+            return new MatchHistory(Path.of(System.getProperty("typingrace.matches.file", "matches.log")), Leaderboard.shared());
+        } catch (IOException e) {
+            Log.warn("Could not open the match log, matches will not be saved: " + e.getMessage());
+            return new MatchHistory(Leaderboard.shared());
+        }
+    }
+
+    public static final class Match {
+        public final int roomId;
+        public final long finishedAt; // Epoch millis
+        public final Map<String, TypingEngine.Result> results; // Username to result, in seat order
+        public final Map<String, Integer> speeds; // Username to net words per minute in tenths, for those with keystrokes
+
+        public Match(int roomId, long finishedAt, Map<String, TypingEngine.Result> results, Map<String, Integer> speeds) {
+            this.roomId = roomId;
+            this.finishedAt = finishedAt;
+            this.results = results;
+            this.speeds = speeds;
+        }
+    }
+
+    // Ranked at once without a log, by the writer thread once it is synced with one
+    public void record(Match match) {
+        if (log == null) {
+            publish(match);
+        } else {
+            pending.add(match);
+        }
+    }
+
+    private void publish(Match match) {
+        leaderboard.record(match.finishedAt, correctCounts(match), match.speeds);
+    }
+
+    private void writeLoop() {
+        List<Match> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(pending.take());
+                pending.drainTo(batch);
+                for (Match match : batch) {
+                    log.write(line(match));
+                }
+                log.flush();
+                logStream.getFD().sync(); // One sync covers everything that piled up meanwhile
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                Log.warn("Could not save " + batch.size() + " matches, ranking them until the next restart: " + e.getMessage());
+            }
+            for (Match match : batch) {
+                publish(match); // After the write, so the leaderboard never shows what a restart would lose
+            }
+            batch.clear();
+        }
+    }
+
+    private int replay(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int loaded = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Match match;
+                try {
+                    match = parse(line);
+                } catch (RuntimeException e) {
+                    Log.warn("Skipping damaged match entry in " + file); // Usually the torn last line of a crash
+                    continue;
+                }
+                publish(match);
+                loaded++;
+            }
+        }
+        return loaded;
+    }
+
+    private static Map<String, Integer> correctCounts(Match match) {
+        Map<String, Integer> correctCounts = new LinkedHashMap<>();
+        for (Map.Entry<String, TypingEngine.Result> entry : match.results.entrySet()) {
+            correctCounts.put(entry.getKey(), entry.getValue().correctCount);
+        }
+        return correctCounts;
+    }
+
+    // "finishedAt roomId player player...", each player as "name:correct:millis,millis:word,word:wpm tenths",
+    // the last field empty for a player without keystrokes.
+    // Names and words are Base64 encoded so they can't break the format.
+    private static String line(Match match) {
+        Base64.Encoder encoder = Base64.getUrlEncoder();
+        StringBuilder line = new StringBuilder().append(match.finishedAt).append(' ').append(match.roomId);
+        for (Map.Entry<String, TypingEngine.Result> entry : match.results.entrySet()) {
+            TypingEngine.Result result = entry.getValue();
+            line.append(' ').append(encoder.encodeToString(entry.getKey().getBytes(StandardCharsets.UTF_8)))
+                    .append(':').append(result.correctCount).append(':');
+            for (int i = 0; i < result.typingTimes.length; i++) {
+                line.append(i == 0 ? "" : ",").append(result.typingTimes[i]);
+            }
+            line.append(':');
+            for (int i = 0; i < result.incorrectWords.size(); i++) {
+                line.append(i == 0 ? "" : ",").append(encoder.encodeToString(result.incorrectWords.get(i).getBytes(StandardCharsets.UTF_8)));
+            }
+            Integer speed = match.speeds.get(entry.getKey());
+            line.append(':').append(speed == null ? "" : speed.toString());
+        }
+        return line.append('\n').toString();
+    }
+
+    private static Match parse(String line) {
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        String[] fields = line.split(" ");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Short match entry");
+        }
+        Map<String, TypingEngine.Result> results = new LinkedHashMap<>();
+        Map<String, Integer> speeds = new LinkedHashMap<>();
+        for (int i = 2; i < fields.length; i++) {
+            String[] player = fields[i].split(":", -1);
+            if (player.length != 5) {
+                throw new IllegalArgumentException("Bad player entry");
+            }
+            String[] times = player[2].isEmpty() ? new String[0] : player[2].split(",");
+            long[] typingTimes = new long[times.length];
+            for (int t = 0; t < times.length; t++) {
+                typingTimes[t] = Long.parseLong(times[t]);
+            }
+            List<String> incorrectWords = new ArrayList<>();
+            for (String word : player[3].isEmpty() ? new String[0] : player[3].split(",")) {
+                incorrectWords.add(new String(decoder.decode(word), StandardCharsets.UTF_8));
+            }
+            String username = new String(decoder.decode(player[0]), StandardCharsets.UTF_8);
+            results.put(username, new TypingEngine.Result(Integer.parseInt(player[1]), typingTimes, incorrectWords));
+            if (!player[4].isEmpty()) {
+                speeds.put(username, Integer.parseInt(player[4]));
+            }
+        }
+        return new Match(Integer.parseInt(fields[1]), Long.parseLong(fields[0]), results, speeds);
+    }
+}
@@ -0,0 +1,203 @@
+package typingrace;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+// Puts connected clients into lobbies and starts a lobby's game the moment its last player confirms.
+// Nothing polls: confirmations and drop-outs update a per-lobby countdown, and an optional fill
+// timeout lets a lobby start with fewer players once it has waited long enough.
+// Free seats sit in a lock-free queue (one entry per seat), so seating a player is a poll rather
+// than a scan, and lobbies that started or emptied out simply stop being offered.
+public class Matchmaker {
+    private static final Metrics.Histogram FILL_TIME = Metrics.histogram("matchmaking.fillTime"); // Lobby opened to game started
+
+    private final int groupSize; // Players needed to fill a lobby
+    private final int minPlayers; // Players needed to start once the fill timeout has passed
+    private final long fillTimeoutMillis; // 0 waits for a full lobby forever
+    private final Consumer<List<Session>> gameStarter;
+    private final ConcurrentLinkedQueue<Lobby> openSeats = new ConcurrentLinkedQueue<>(); // One entry per free seat
+    private final Set<Lobby> activeLobbies = ConcurrentHashMap.newKeySet(); // Lobbies with at least one player
+    private final Map<Session, Lobby> lobbyBySession = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService fillTimer;
+    private final AtomicInteger nextLobbyId = new AtomicInteger(1);
+
+    public Matchmaker(int groupSize, int minPlayers, long fillTimeoutMillis, Consumer<List<Session>> gameStarter) {
+        this.groupSize = groupSize;
+        this.minPlayers = Math.max(1, Math.min(minPlayers, groupSize));
+        this.fillTimeoutMillis = fillTimeoutMillis;
+        this.gameStarter = gameStarter;
+        this.fillTimer = fillTimeoutMillis > 0 ? Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "lobby-fill-timer");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    // Seats the client in the oldest lobby with a free seat, opening a new lobby if none has one
+    public void join(Session session) {
+        Lobby lobby;
+        while ((lobby = openSeats.poll()) != null) {
+            if (lobby.trySeat(session)) {
+                lobbyBySession.put(session, lobby);
+                return;
+            }
+            // Seat of a lobby that already started or was retired, drop it and keep looking
+        }
+        lobby = new Lobby(nextLobbyId.getAndIncrement());
+        lobby.trySeat(session);
+        activeLobbies.add(lobby);
+        for (int i = 1; i < groupSize; i++) {
+            openSeats.offer(lobby); // Offer the remaining seats to the next arrivals
+        }
+        lobbyBySession.put(session, lobby);
+        scheduleFillTimeout(lobby);
+    }
+
+    public int getActiveLobbyCount() {
+        return activeLobbies.size();
+    }
+
+    // The player agreed to play; starts the lobby's game if this was the last confirmation
+    public void confirm(Session session) {
+        Lobby lobby = lobbyBySession.get(session);
+        if (lobby != null) {
+            lobby.confirm(session);
+        }
+    }
+
+    // The player disconnected; before the game starts this frees the seat for backfilling
+    public void leave(Session session) {
+        Lobby lobby = lobbyBySession.remove(session);
+        if (lobby != null) {
+            lobby.leave(session);
+        }
+    }
+
+    private void scheduleFillTimeout(Lobby lobby) {
+        if (fillTimer != null) {
+            fillTimer.schedule(lobby::expireFillTimeout, fillTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private final class Lobby {
+        private final int id;
+        private final List<Session> seats = new ArrayList<>();
+        private final Set<Session> confirmed = new HashSet<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean started = false;
+        private boolean retired = false; // Everyone left; the lobby is never offered again
+        private boolean fillExpired = false; // Once set the lobby starts with whoever is seated
+        private final long opened = System.nanoTime();
+
+        Lobby(int id) {
+            this.id = id;
+        }
+
+        boolean trySeat(Session session) {
+            lock.lock();
+            try {
+                if (started || retired || seats.size() >= groupSize) {
+                    return false;
+                }
+                seats.add(session);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void confirm(Session session) {
+            List<Session> players;
+            lock.lock();
+            try {
+                if (started || !seats.contains(session)) {
+                    return;
+                }
+                confirmed.add(session);
+                players = startIfReady();
+            } finally {
+                lock.unlock();
+            }
+            start(players);
+        }
+
+        void leave(Session session) {
+            List<Session> players = null;
+            boolean reopenSeat = false;
+            lock.lock();
+            try {
+                if (!seats.remove(session)) {
+                    return;
+                }
+                confirmed.remove(session);
+                if (seats.isEmpty()) {
+                    retired = true; // Abandoned or finished, stop tracking it
+                } else if (!started) {
+                    reopenSeat = true;
+                    players = startIfReady(); // A leaving straggler may be all the others were waiting for
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (retired) {
+                activeLobbies.remove(this);
+            } else if (reopenSeat && players == null) {
+                openSeats.offer(this); // Backfill the seat with the next arrival
+            }
+            start(players);
+        }
+
+        void expireFillTimeout() {
+            List<Session> players;
+            lock.lock();
+            try {
+                fillExpired = true;
+                players = startIfReady();
+            } finally {
+                lock.unlock();
+            }
+            start(players);
+        }
+
+        // Countdown check: how many seats are still waiting for a confirmation. Caller holds the lock.
+        private List<Session> startIfReady() {
+            if (started) {
+                return null;
+            }
+            int target = fillExpired ? seats.size() : groupSize;
+            int remaining = target - confirmed.size();
+            if (remaining > 0 || seats.size() < minPlayers) {
+                return null;
+            }
+            started = true;
+            return new ArrayList<>(seats);
+        }
+
+        private void start(List<Session> players) {
+            if (players != null) {
+                FILL_TIME.recordSince(opened);
+                Log.info("Lobby " + id + " is ready");
+                activeLobbies.remove(this); // The game room takes over from here
+                for (Session session : players) {
+                    lobbyBySession.remove(session, this);
+                }
+                gameStarter.accept(players); // Outside the lobby lock, starting a game does I/O
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package typingrace;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Accounts that only live as long as the server process; handy for local games and testing
+public class MemoryUserStore implements UserStore {
+    private final Map<String, PasswordHash> users = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean add(String username, PasswordHash hash) {
+        return users.putIfAbsent(username, hash) == null;
+    }
+
+    @Override
+    public PasswordHash find(String username) {
+        return users.get(username);
+    }
+
+    @Override
+    public int size() {
+        return users.size();
+    }
+}
@@ -0,0 +1,221 @@
+package typingrace;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Process-wide metrics: counters, gauges and latency histograms, looked up once by name and kept
+// in static fields by the code that updates them. Updates are a LongAdder or an atomic bucket
+// increment, so instrumenting a hot path costs a few nanoseconds. MetricsEndpoint serves them.
+public final class Metrics {
+    private static final boolean ENABLED = Boolean.parseBoolean(System.getProperty("typingrace.metrics.enabled", "true")); // false skips every update
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    // Read whenever the metrics are scraped
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    public static Histogram histogram(String name) {
+        return histogram(name, 1);
+    }
+
+    // Times one call in sampleEvery (a power of two), for paths where two clock reads per call
+    // would cost more than the work they time; the count is then of sampled calls only
+    public static Histogram histogram(String name, int sampleEvery) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(sampleEvery));
+    }
+
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            if (ENABLED) {
+                value.increment();
+            }
+        }
+
+        public void add(long amount) {
+            if (ENABLED) {
+                value.add(amount);
+            }
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    // Log-linear buckets like HdrHistogram with 3 significant bits: every power of two is split into
+    // 8 buckets, so any percentile is within 12.5% of the true value. Values are nanoseconds.
+    public static final class Histogram {
+        private static final int SUB_BUCKETS = 8;
+        private static final int BUCKETS = SUB_BUCKETS + 61 * SUB_BUCKETS; // Exact below 8, then 8 per power of two
+        private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+        private final int sampleMask;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram(int sampleEvery) {
+            if (Integer.bitCount(sampleEvery) != 1) {
+                throw new IllegalArgumentException("Sample rate must be a power of two: " + sampleEvery);
+            }
+            this.sampleMask = sampleEvery - 1;
+        }
+
+        // The start time to hand to recordSince, or a marker that makes it skip this call
+        public long start() {
+            if (!ENABLED || (sampleMask != 0 && (ThreadLocalRandom.current().nextInt() & sampleMask) != 0)) {
+                return NOT_SAMPLED;
+            }
+            return System.nanoTime();
+        }
+
+        public void record(long value) {
+            if (!ENABLED) {
+                return;
+            }
+            long clamped = Math.max(0, value);
+            buckets.incrementAndGet(bucket(clamped));
+            count.increment();
+            sum.add(clamped);
+            max.accumulate(clamped);
+        }
+
+        // Records the time since a System.nanoTime() or start() taken earlier
+        public void recordSince(long startNanos) {
+            if (ENABLED && startNanos != NOT_SAMPLED) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public long count() {
+            return count.sum();
+        }
+
+        public long mean() {
+            long samples = count.sum();
+            return samples == 0 ? 0 : sum.sum() / samples;
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        // Upper bound of the bucket that holds the percentile
+        public long percentile(double percentile) {
+            long[] snapshot = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min(bucketLimit(i), max.get());
+                }
+            }
+            return max.get();
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value); // At least 3
+            int sub = (int) (value >> (exponent - 3)) & (SUB_BUCKETS - 1);
+            return SUB_BUCKETS + (exponent - 3) * SUB_BUCKETS + sub;
+        }
+
+        private static long bucketLimit(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + 3;
+            int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+            return ((long) (SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1;
+        }
+    }
+
+    // "name value" per line; histograms in microseconds
+    public static String toText() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Long> entry : scalars().entrySet()) {
+            text.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            String name = entry.getKey();
+            text.append(name).append(".count ").append(histogram.count()).append('\n')
+                    .append(name).append(".mean_us ").append(micros(histogram.mean())).append('\n')
+                    .append(name).append(".p50_us ").append(micros(histogram.percentile(50))).append('\n')
+                    .append(name).append(".p90_us ").append(micros(histogram.percentile(90))).append('\n')
+                    .append(name).append(".p99_us ").append(micros(histogram.percentile(99))).append('\n')
+                    .append(name).append(".max_us ").append(micros(histogram.max())).append('\n');
+        }
+        return text.toString();
+    }
+
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"values\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> entry : scalars().entrySet()) {
+            json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":").append(entry.getValue());
+            first = false;
+        }
+        json.append("},\"histograms\":{");
+        first = true;
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram histogram = entry.getValue();
+            json.append(first ? "" : ",").append('"').append(entry.getKey()).append("\":{")
+                    .append("\"count\":").append(histogram.count())
+                    .append(",\"mean_us\":").append(micros(histogram.mean()))
+                    .append(",\"p50_us\":").append(micros(histogram.percentile(50)))
+                    .append(",\"p90_us\":").append(micros(histogram.percentile(90)))
+                    .append(",\"p99_us\":").append(micros(histogram.percentile(99)))
+                    .append(",\"max_us\":").append(micros(histogram.max())).append('}');
+            first = false;
+        }
+        return json.append("}}").toString();
+    }
+
+    // Counters and gauges together, sorted by name
+    private static Map<String, Long> scalars() {
+        Map<String, Long> values = new TreeMap<>();
+        for (Map.Entry<String, Counter> entry : counters.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        for (Map.Entry<String, LongSupplier> entry : gauges.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
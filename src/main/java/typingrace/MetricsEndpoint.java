@@ -0,0 +1,48 @@
+package typingrace;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+// Local HTTP scrape endpoint for Metrics: /metrics as "name value" lines, /metrics.json as JSON.
+// It listens on the loopback interface only and answers on one thread of its own.
+public final class MetricsEndpoint {
+    private static final int PORT = Integer.getInteger("typingrace.metrics.port", 9100); // 0 turns the endpoint off
+
+    private MetricsEndpoint() {
+    }
+
+    public static void start() {
+        if (PORT <= 0) {
+            return;
+        }
+        try {
+            HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), PORT), 0);
+            http.createContext("/metrics", exchange -> respond(exchange, "text/plain", Metrics.toText()));
+            http.createContext("/metrics.json", exchange -> respond(exchange, "application/json", Metrics.toJson()));
+            http.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-endpoint");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            http.start();
+            Log.info("Metrics on http://localhost:" + PORT + "/metrics");
+        } catch (IOException e) {
+            Log.warn("Could not start the metrics endpoint on port " + PORT + ": " + e.getMessage());
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
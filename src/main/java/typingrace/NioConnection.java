@@ -0,0 +1,161 @@
+package typingrace;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One client connection served by an NioServer event loop.
+// Reads are decoded into lines on the loop thread; writes may come from any thread and are
+// queued until the loop can push them to the channel.
+public class NioConnection implements Outbound {
+    private final SocketChannel channel;
+    private final NioServer.EventLoop loop;
+    private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>(); // Views of shared frames waiting to be written
+    private final AtomicInteger depth = new AtomicInteger(); // Frames queued but not yet fully written
+    private final AtomicBoolean writeScheduled = new AtomicBoolean(); // True while the loop has a flush pending
+    private SelectionKey key;
+    private ClientHandler handler;
+    private volatile boolean closed = false;
+    private volatile boolean closing = false; // Close once the queue has been written
+
+    NioConnection(SocketChannel channel, NioServer.EventLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    void attach(SelectionKey key, ClientHandler handler) {
+        this.key = key;
+        this.handler = handler;
+    }
+
+    public Socket socket() {
+        return channel.socket();
+    }
+
+    // Called on the loop thread when the channel is readable
+    void read(ByteBuffer scratch) {
+        try {
+            scratch.clear();
+            int read = channel.read(scratch);
+            if (read < 0) {
+                close();
+                return;
+            }
+            scratch.flip();
+            handler.onInput(scratch); // The handler decodes lines or binary messages
+        } catch (IOException e) {
+            close();
+        } catch (RuntimeException e) {
+            Log.error("Error handling client input", e);
+            close();
+        }
+    }
+
+    // Queues a frame and asks the loop to write it
+    @Override
+    public boolean offer(Frame frame) {
+        if (closed) {
+            return false;
+        }
+        int queued = depth.get();
+        if (queued >= HARD_LIMIT) {
+            CUT_OFF.increment();
+            Log.warn("Client is not reading, disconnecting " + channel.socket());
+            loop.execute(this::close); // Closing touches the selection key, leave it to the loop
+            return false;
+        }
+        outbound.offer(frame.buffer());
+        depth.incrementAndGet();
+        QUEUED.increment();
+        FRAMES.increment();
+        if (writeScheduled.compareAndSet(false, true)) {
+            loop.scheduleWrite(this);
+        }
+        return true;
+    }
+
+    @Override
+    public int backlog() {
+        return depth.get();
+    }
+
+    @Override
+    public void closeAfterFlush() {
+        closing = true;
+        if (writeScheduled.compareAndSet(false, true)) {
+            loop.scheduleWrite(this); // The flush closes once nothing is left
+        }
+    }
+
+    // Called on the loop thread; writes as much as the socket accepts without blocking. Everything
+    // queued since the last turn goes out in one gathering write, so a prompt of several lines or a
+    // burst of broadcasts costs one syscall instead of one per frame.
+    void flush(ByteBuffer[] batch) {
+        writeScheduled.set(false);
+        if (closed) {
+            return;
+        }
+        try {
+            while (true) {
+                int count = 0;
+                for (ByteBuffer buffer : outbound) {
+                    batch[count++] = buffer;
+                    if (count == batch.length) {
+                        break;
+                    }
+                }
+                if (count == 0) {
+                    break;
+                }
+                channel.write(batch, 0, count);
+                WRITES.increment();
+                int written = 0;
+                while (written < count && !batch[written].hasRemaining()) {
+                    outbound.poll();
+                    written++;
+                }
+                Arrays.fill(batch, 0, count, null); // The batch array is shared by the loop's connections
+                depth.addAndGet(-written);
+                QUEUED.add(-written);
+                if (written < count) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE); // Socket buffer full, wait for OP_WRITE
+                    return;
+                }
+            }
+            if (closing) {
+                close();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        outbound.clear();
+        QUEUED.add(-depth.getAndSet(0));
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Log.warn("Could not close socket");
+        }
+        if (handler != null) {
+            handler.onDisconnect();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package typingrace;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Non-blocking server mode: one acceptor thread hands connections to a fixed set of selector
+// event loops (one per core by default), so idle lobby connections cost no thread at all.
+public class NioServer {
+    private static final int EVENT_LOOPS = Integer.getInteger("typingrace.nio.loops", Runtime.getRuntime().availableProcessors());
+    private static final int READ_BUFFER_SIZE = 16 * 1024; // Scratch read buffer shared by all connections of a loop
+    private static final int WRITE_BATCH = 64; // Most frames one gathering write hands to the socket
+    private static final int BACKLOG = 1024; // Pending connections the OS may queue for us
+
+    private final int port;
+    private final server serverInstance;
+    private final EventLoop[] loops;
+
+    public NioServer(int port, server serverInstance) throws IOException {
+        this.port = port;
+        this.serverInstance = serverInstance;
+        this.loops = new EventLoop[Math.max(1, EVENT_LOOPS)];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+    }
+
+    public void run() throws IOException {
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress(port), BACKLOG);
+            Log.info("Server started. Listening on Port " + port + " with " + loops.length + " event loops");
+            Admission admission = new Admission();
+            int next = 0;
+            while (true) {
+                SocketChannel channel = serverChannel.accept(); // Blocking accept, the loops do the rest
+                long retryAfter = admission.admit(channel.socket().getInetAddress(), serverInstance.sessionCount());
+                if (retryAfter > 0) {
+                    Admission.reject(channel.socket(), retryAfter); // Still in blocking mode, so a plain write
+                    continue;
+                }
+                if (!loops[next].hasRoom()) {
+                    Admission.reject(channel.socket(), admission.handoffFull()); // The loop is not keeping up with accepts
+                    continue;
+                }
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            }
+        }
+    }
+
+    final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<SocketChannel> newChannels = new ArrayBlockingQueue<>(Admission.HANDOFF_QUEUE); // Filled only by the acceptor
+        private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>(); // Work other threads hand to the loop
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        private final ByteBuffer[] writeBatch = new ByteBuffer[WRITE_BATCH];
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-loop-" + index);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        boolean hasRoom() {
+            return newChannels.size() < Admission.HANDOFF_QUEUE;
+        }
+
+        void register(SocketChannel channel) {
+            newChannels.offer(channel);
+            selector.wakeup();
+        }
+
+        void scheduleWrite(NioConnection connection) {
+            pendingWrites.offer(connection);
+            if (Thread.currentThread() != thread) {
+                selector.wakeup(); // Writes queued from the loop itself are flushed before it selects again
+            }
+        }
+
+        void execute(Runnable task) {
+            tasks.offer(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                try {
+                    selector.select();
+                    acceptNewChannels();
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        if (key.isValid() && key.isReadable()) {
+                            connection.read(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush(writeBatch);
+                        }
+                    }
+                    NioConnection connection;
+                    while ((connection = pendingWrites.poll()) != null) {
+                        connection.flush(writeBatch); // Once per turn, after everything this turn queued
+                    }
+                } catch (IOException e) {
+                    Log.error("Event loop exception", e);
+                }
+            }
+        }
+
+        private void acceptNewChannels() {
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                NioConnection connection = new NioConnection(channel, this);
+                ClientHandler clientHandler = new ClientHandler(channel.socket(), serverInstance, connection);
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                    connection.attach(key, clientHandler);
+                } catch (IOException e) {
+                    Log.warn("Could not register client: " + e.getMessage());
+                    connection.close();
+                    continue;
+                }
+                if (Log.isEnabled(Log.Level.DEBUG)) {
+                    Log.debug("New client connected: " + channel.socket());
+                }
+                serverInstance.registerClient(channel.socket(), clientHandler);
+                clientHandler.greet();
+            }
+        }
+    }
+}
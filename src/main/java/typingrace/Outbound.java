@@ -0,0 +1,21 @@
+package typingrace;
+
+// Per-connection queue of frames waiting to be written to one client.
+// Offers never block the caller; the connection writes on its own time.
+public interface Outbound {
+    int SOFT_LIMIT = Integer.getInteger("typingrace.outbound.softLimit", 64); // Queued frames past which a client counts as falling behind
+    int HARD_LIMIT = Integer.getInteger("typingrace.outbound.hardLimit", 1024); // Queued frames before the client is cut off
+    Metrics.Counter FRAMES = Metrics.counter("outbound.frames"); // Frames accepted for writing
+    Metrics.Counter WRITES = Metrics.counter("outbound.writes"); // Socket writes; several frames share one when they coalesce
+    Metrics.Counter QUEUED = Metrics.counter("outbound.queued"); // Frames waiting on all connections; goes down as they are written
+    Metrics.Counter CUT_OFF = Metrics.counter("outbound.cutOff"); // Clients disconnected for not reading
+
+    // Returns false if the client was cut off for not reading or is gone
+    boolean offer(Frame frame);
+
+    // Frames queued but not yet written
+    int backlog();
+
+    // Writes what is already queued, then closes the connection
+    void closeAfterFlush();
+}
@@ -0,0 +1,62 @@
+package typingrace;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// A salted, deliberately slow PBKDF2 hash of a password. Plain passwords are never stored.
+public final class PasswordHash {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom random = new SecureRandom();
+
+    private final byte[] salt;
+    private final byte[] hash;
+    private final int iterations;
+
+    private PasswordHash(byte[] salt, byte[] hash, int iterations) {
+        this.salt = salt;
+        this.hash = hash;
+        this.iterations = iterations;
+    }
+
+    public static PasswordHash create(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        return new PasswordHash(salt, derive(password, salt, iterations), iterations);
+    }
+
+    public boolean matches(String password) {
+        return MessageDigest.isEqual(hash, derive(password, salt, iterations)); // Constant-time compare
+    }
+
+    // "iterations:salt:hash", Base64 encoded; contains no whitespace
+    public String encode() {
+        Base64.Encoder encoder = Base64.getEncoder();
+        return iterations + ":" + encoder.encodeToString(salt) + ":" + encoder.encodeToString(hash);
+    }
+
+    public static PasswordHash decode(String encoded) {
+        String[] parts = encoded.split(":");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Malformed password hash");
+        }
+        Base64.Decoder decoder = Base64.getDecoder();
+        return new PasswordHash(decoder.decode(parts[1]), decoder.decode(parts[2]), Integer.parseInt(parts[0]));
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
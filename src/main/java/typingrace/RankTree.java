@@ -0,0 +1,172 @@
+package typingrace;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Order-statistic tree (a treap with subtree sizes) of players ordered by points, highest first,
+// ties broken by name. Insert, remove, "rank of X" and "who is at rank k" are all O(log n).
+// Not thread-safe; Leaderboard guards it.
+public class RankTree {
+    private Node root;
+
+    public int size() {
+        return size(root);
+    }
+
+    public void insert(String name, long points) {
+        root = insert(root, new Node(name, points));
+    }
+
+    public void remove(String name, long points) {
+        root = remove(root, name, points);
+    }
+
+    // 1-based rank of the entry, or 0 if it is not in the tree
+    public int rank(String name, long points) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            int cmp = compare(name, points, node);
+            if (cmp < 0) {
+                node = node.left;
+            } else if (cmp > 0) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return rank + size(node.left) + 1;
+            }
+        }
+        return 0;
+    }
+
+    // The entries ranked from..from+count-1 (1-based), in order
+    public List<Entry> range(int from, int count) {
+        List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(count, size() - from + 1)));
+        collect(root, from - 1, from - 1 + count, 0, entries);
+        return entries;
+    }
+
+    public static final class Entry {
+        public final String name;
+        public final long points;
+
+        Entry(String name, long points) {
+            this.name = name;
+            this.points = points;
+        }
+    }
+
+    // In-order walk that skips every subtree lying entirely outside [from, to)
+    private static void collect(Node node, int from, int to, int offset, List<Entry> out) {
+        if (node == null || offset >= to) {
+            return;
+        }
+        int leftSize = size(node.left);
+        if (offset + leftSize > from) {
+            collect(node.left, from, to, offset, out);
+        }
+        int position = offset + leftSize;
+        if (position >= from && position < to) {
+            out.add(new Entry(node.name, node.points));
+        }
+        if (position + 1 < to) {
+            collect(node.right, from, to, position + 1, out);
+        }
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.name, added.points, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node remove(Node node, String name, long points) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(name, points, node);
+        if (cmp < 0) {
+            node.left = remove(node.left, name, points);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, name, points);
+        } else {
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            if (node.left.priority > node.right.priority) {
+                node = rotateRight(node);
+                node.right = remove(node.right, name, points);
+            } else {
+                node = rotateLeft(node);
+                node.left = remove(node.left, name, points);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    // Negative if (name, points) ranks before the node
+    private static int compare(String name, long points, Node node) {
+        if (points != node.points) {
+            return points > node.points ? -1 : 1;
+        }
+        return name.compareTo(node.name);
+    }
+
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        update(node);
+        update(left);
+        return left;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        update(node);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + size(node.left) + size(node.right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node {
+        private final String name;
+        private final long points;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        Node(String name, long points) {
+            this.name = name;
+            this.points = points;
+        }
+    }
+}
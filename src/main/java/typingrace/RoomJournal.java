@@ -0,0 +1,378 @@
+package typingrace;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Crash safety for the races in progress. Rooms report every round start, answered word, forfeit
+// and round end; one writer thread appends them to rooms.journal and folds them into a model of
+// the rounds still running. Every SNAPSHOT_MS that model goes to rooms.snapshot and the journal
+// starts over, so a restart reads the active rooms plus a few seconds of events, however long the
+// server has been up. Finished matches live in the match history, not here.
+public final class RoomJournal {
+    private static final long SNAPSHOT_MS = Long.getLong("typingrace.rooms.snapshotMs", 5000);
+    private static final RoomJournal shared = create();
+
+    private final Path journalFile; // Null when rooms are kept in memory only
+    private final Path snapshotFile;
+    private final LinkedBlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private final Map<Integer, SavedRoom> active = new LinkedHashMap<>(); // Writer thread only, once recovery is done
+    private final List<SavedRoom> recovered = new ArrayList<>();
+    private FileOutputStream journalStream;
+    private Writer journal;
+    private long sequence; // Number of the last event written; the snapshot records which ones it covers
+
+    RoomJournal() {
+        this.journalFile = null;
+        this.snapshotFile = null;
+    }
+
+    RoomJournal(Path base) throws IOException {
+        this.journalFile = Path.of(base + ".journal");
+        this.snapshotFile = Path.of(base + ".snapshot");
+        long started = System.nanoTime();
+        recover();
+        Log.info("Recovered " + recovered.size() + " active rooms in " + (System.nanoTime() - started) / 1_000_000 + " ms");
+        writeSnapshot(); // Folds the replayed journal in, so it starts empty
+        Thread writer = new Thread(this::writeLoop, "room-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static RoomJournal shared() {
+        return shared;
+    }
+
+    private static RoomJournal create() {
+        if ("memory".equalsIgnoreCase(System.getProperty("typingrace.rooms.store", "file"))) {
+            return new RoomJournal();
+        }
+        try {
+            return new RoomJournal(Path.of(System.getProperty("typingrace.rooms.file", "rooms")));
+        } catch (IOException e) {
+            Log.warn("Could not open the room journal, rooms will not survive a restart: " + e.getMessage());
+            return new RoomJournal();
+        }
+    }
+
+    // Rounds that were running when the server stopped and still have someone to finish them
+    public List<SavedRoom> recovered() {
+        return recovered;
+    }
+
+    // "S at room word,word... name,name... token,token..."; names and words Base64 encoded
+    public void roundStarted(int room, List<String> words, String[] names, String[] tokens) {
+        Base64.Encoder encoder = Base64.getUrlEncoder();
+        StringBuilder line = new StringBuilder("S ").append(System.currentTimeMillis()).append(' ').append(room).append(' ');
+        for (int i = 0; i < words.size(); i++) {
+            line.append(i == 0 ? "" : ",").append(encoder.encodeToString(words.get(i).getBytes(StandardCharsets.UTF_8)));
+        }
+        line.append(' ');
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i] != null ? names[i] : "";
+            line.append(i == 0 ? "" : ",").append(encoder.encodeToString(name.getBytes(StandardCharsets.UTF_8)));
+        }
+        line.append(' ').append(String.join(",", tokens));
+        append(line.toString());
+    }
+
+    // "W at room seat index correct millis"
+    public void answered(int room, int seat, int index, boolean correct, long millis) {
+        append("W " + System.currentTimeMillis() + " " + room + " " + seat + " " + index + " " + (correct ? 1 : 0) + " " + millis);
+    }
+
+    // "F at room seat": quit, or gone for longer than the resume grace
+    public void forfeited(int room, int seat) {
+        append("F " + System.currentTimeMillis() + " " + room + " " + seat);
+    }
+
+    // "E at room": the winner is out or the room was retired
+    public void roundEnded(int room) {
+        append("E " + System.currentTimeMillis() + " " + room);
+    }
+
+    private void append(String event) {
+        if (journalFile != null) {
+            pending.add(event);
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>();
+        long lastSnapshot = System.currentTimeMillis();
+        boolean dirty = false;
+        while (true) {
+            try {
+                String first = pending.poll(SNAPSHOT_MS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch);
+                    for (String event : batch) {
+                        journal.write(++sequence + " " + event + "\n");
+                        try {
+                            apply(event);
+                        } catch (RuntimeException e) {
+                            Log.warn("Could not apply room event " + event + ": " + e.getMessage());
+                        }
+                    }
+                    journal.flush();
+                    journalStream.getFD().sync(); // One sync covers everything that piled up meanwhile
+                    dirty = true;
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastSnapshot >= SNAPSHOT_MS && (dirty || !active.isEmpty())) {
+                    writeSnapshot(); // Also when nothing changed, so the saved clocks stay current
+                    lastSnapshot = now;
+                    dirty = false;
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (IOException e) {
+                Log.warn("Could not save " + batch.size() + " room events: " + e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+
+    // Writes the model next to the old snapshot, swaps it in and empties the journal. A crash in
+    // between is harmless: the header says which journal events the snapshot already holds.
+    private void writeSnapshot() throws IOException {
+        long now = System.currentTimeMillis();
+        Path temporary = Path.of(snapshotFile + ".tmp");
+        try (FileOutputStream stream = new FileOutputStream(temporary.toFile());
+                Writer snapshot = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8))) {
+            snapshot.write("N " + now + " " + sequence + "\n");
+            for (SavedRoom room : active.values()) {
+                room.savedAt = now;
+                room.write(snapshot);
+            }
+            snapshot.flush();
+            stream.getFD().sync();
+        }
+        Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (journal != null) {
+            journal.close();
+        }
+        journalStream = new FileOutputStream(journalFile.toFile(), false);
+        journal = new BufferedWriter(new OutputStreamWriter(journalStream, StandardCharsets.UTF_8));
+    }
+
+    private void recover() throws IOException {
+        long covered = 0;
+        long savedAt = 0;
+        if (Files.exists(snapshotFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(snapshotFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("N ")) {
+                        String[] fields = line.split(" ");
+                        savedAt = Long.parseLong(fields[1]);
+                        covered = Long.parseLong(fields[2]);
+                    } else {
+                        apply(line);
+                    }
+                }
+            }
+        }
+        for (SavedRoom room : active.values()) {
+            room.savedAt = savedAt;
+        }
+        sequence = covered;
+        if (Files.exists(journalFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(journalFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int space = line.indexOf(' ');
+                    try {
+                        long number = Long.parseLong(line.substring(0, space));
+                        if (number > covered) {
+                            apply(line.substring(space + 1));
+                            sequence = Math.max(sequence, number);
+                        }
+                    } catch (RuntimeException e) {
+                        Log.warn("Skipping damaged room event in " + journalFile); // Usually the torn last line of a crash
+                    }
+                }
+            }
+        }
+        for (SavedRoom room : active.values()) {
+            if (room.hasPlayersLeft()) {
+                room.rememberClocks(); // Before the next snapshot moves savedAt to now
+                recovered.add(room);
+            }
+        }
+    }
+
+    // Folds one event into the model of active rounds
+    private void apply(String event) {
+        String[] fields = event.split(" ", -1);
+        long at = Long.parseLong(fields[1]);
+        int roomId = Integer.parseInt(fields[2]);
+        if ("S".equals(fields[0])) {
+            active.put(roomId, new SavedRoom(roomId, decode(fields[3]), decode(fields[4]), fields[5].split(","), at));
+            return;
+        }
+        SavedRoom room = active.get(roomId);
+        if (room == null) {
+            return; // Its round ended before the snapshot this event is newer than
+        }
+        room.savedAt = Math.max(room.savedAt, at);
+        switch (fields[0]) {
+            case "W": {
+                SavedRoom.Seat seat = room.seats[Integer.parseInt(fields[3])];
+                if (Integer.parseInt(fields[4]) == seat.index) { // Replayed events the snapshot already holds change nothing
+                    boolean correct = "1".equals(fields[5]);
+                    seat.addTime(Long.parseLong(fields[6]));
+                    if (correct) {
+                        seat.correctCount++;
+                    } else {
+                        seat.incorrectWords.add(room.words.get(seat.index));
+                    }
+                    seat.index++;
+                    seat.wordStartedAt = at;
+                }
+                break;
+            }
+            case "F":
+                room.seats[Integer.parseInt(fields[3])].forfeited = true;
+                break;
+            case "P": { // Snapshot only: "P at room seat index correct wordStartedAt forfeited millis,millis word,word"
+                SavedRoom.Seat seat = room.seats[Integer.parseInt(fields[3])];
+                seat.index = Integer.parseInt(fields[4]);
+                seat.correctCount = Integer.parseInt(fields[5]);
+                seat.wordStartedAt = Long.parseLong(fields[6]);
+                seat.forfeited = "1".equals(fields[7]);
+                seat.timeCount = 0;
+                for (String time : fields[8].isEmpty() ? new String[0] : fields[8].split(",")) {
+                    seat.addTime(Long.parseLong(time));
+                }
+                seat.incorrectWords.clear();
+                seat.incorrectWords.addAll(decode(fields[9]));
+                break;
+            }
+            case "E":
+                active.remove(roomId);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown room event " + fields[0]);
+        }
+    }
+
+    private static List<String> decode(String field) {
+        Base64.Decoder decoder = Base64.getUrlDecoder();
+        List<String> values = new ArrayList<>();
+        for (String value : field.isEmpty() ? new String[0] : field.split(",", -1)) {
+            values.add(new String(decoder.decode(value), StandardCharsets.UTF_8));
+        }
+        return values;
+    }
+
+    private static String encode(List<String> values) {
+        Base64.Encoder encoder = Base64.getUrlEncoder();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            field.append(i == 0 ? "" : ",").append(encoder.encodeToString(values.get(i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return field.toString();
+    }
+
+    // A round as the journal last saw it
+    public static final class SavedRoom {
+        public final int id;
+        public final List<String> words;
+        public final List<String> names; // By seat; "" for a seat nobody had logged in on
+        public final String[] tokens; // Resume token of each seat
+        public final Seat[] seats;
+        private long savedAt; // Epoch millis of the last thing known about this room
+        private long[] remaining; // Set when the room is recovered
+
+        SavedRoom(int id, List<String> words, List<String> names, String[] tokens, long startedAt) {
+            this.id = id;
+            this.words = words;
+            this.names = names;
+            this.tokens = tokens;
+            this.savedAt = startedAt;
+            this.seats = new Seat[names.size()];
+            for (int i = 0; i < seats.length; i++) {
+                seats[i] = new Seat();
+                seats[i].wordStartedAt = startedAt;
+            }
+        }
+
+        boolean hasPlayersLeft() {
+            for (Seat seat : seats) {
+                if (!seat.forfeited && seat.index < words.size()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        // Time the seat still had on its current word when the room was last saved; the downtime is not charged
+        public long remainingMillis(int seat) {
+            return remaining[seat];
+        }
+
+        private void rememberClocks() {
+            remaining = new long[seats.length];
+            for (int i = 0; i < seats.length; i++) {
+                long limit = TimeUnit.SECONDS.toMillis(TypingEngine.secondsFor(seats[i].index));
+                remaining[i] = Math.max(1000, limit - Math.max(0, savedAt - seats[i].wordStartedAt));
+            }
+        }
+
+        private void write(Writer out) throws IOException {
+            String[] nameField = new String[names.size()];
+            Base64.Encoder encoder = Base64.getUrlEncoder();
+            for (int i = 0; i < nameField.length; i++) {
+                nameField[i] = encoder.encodeToString(names.get(i).getBytes(StandardCharsets.UTF_8));
+            }
+            out.write("S " + savedAt + " " + id + " " + encode(words) + " " + String.join(",", nameField) + " " + String.join(",", tokens) + "\n");
+            for (int i = 0; i < seats.length; i++) {
+                Seat seat = seats[i];
+                StringBuilder times = new StringBuilder();
+                for (int t = 0; t < seat.timeCount; t++) {
+                    times.append(t == 0 ? "" : ",").append(seat.times[t]);
+                }
+                out.write("P " + savedAt + " " + id + " " + i + " " + seat.index + " " + seat.correctCount + " " + seat.wordStartedAt + " "
+                        + (seat.forfeited ? 1 : 0) + " " + times + " " + encode(seat.incorrectWords) + "\n");
+            }
+        }
+
+        public static final class Seat {
+            public int index; // Word the player is on
+            public int correctCount;
+            public long wordStartedAt; // Epoch millis the current word was handed out
+            public boolean forfeited;
+            public final List<String> incorrectWords = new ArrayList<>();
+            private long[] times = new long[32]; // Milliseconds spent on each answered word
+            private int timeCount = 0;
+
+            void addTime(long millis) {
+                if (timeCount == times.length) {
+                    times = Arrays.copyOf(times, times.length * 2);
+                }
+                times[timeCount++] = millis;
+            }
+
+            public long[] typingTimes() {
+                return Arrays.copyOf(times, timeCount);
+            }
+        }
+    }
+}
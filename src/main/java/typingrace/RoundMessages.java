@@ -0,0 +1,61 @@
+package typingrace;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// The WORD and RESULT messages of a round, encoded once and shared instead of built for every
+// answer. Everyone in a room gets the same words, so a WORD frame is encoded the first time a
+// seat on that protocol reaches it and reused for the others. RESULT only depends on the answer
+// and the running count, so each one is encoded the first time any room needs it.
+final class RoundMessages {
+    private static final int SHARED_COUNTS = GameRoom.WORDS_PER_GAME + 1; // Every count a round can reach; restored rounds may go past it
+    private static final AtomicReferenceArray<Broadcast> CORRECT = new AtomicReferenceArray<>(SHARED_COUNTS);
+    private static final AtomicReferenceArray<Broadcast> INCORRECT = new AtomicReferenceArray<>(SHARED_COUNTS);
+
+    private final String[] words; // The engine's words; only the same String at an index hits the cache
+    private final AtomicReferenceArray<Frame> textWords;
+    private final AtomicReferenceArray<Frame> binaryWords;
+
+    RoundMessages(String[] words) {
+        this.words = words;
+        this.textWords = new AtomicReferenceArray<>(words.length);
+        this.binaryWords = new AtomicReferenceArray<>(words.length);
+    }
+
+    Frame word(int index, int seconds, String word, boolean binary) {
+        if (index >= words.length || words[index] != word || seconds != TypingEngine.secondsFor(index)) {
+            return encodeWord(index, seconds, word, binary); // A resumed seat's clock, or a word of another round
+        }
+        AtomicReferenceArray<Frame> frames = binary ? binaryWords : textWords;
+        Frame frame = frames.get(index);
+        if (frame == null) {
+            frame = encodeWord(index, seconds, word, binary);
+            frames.lazySet(index, frame); // Seats racing for the same word encode the same bytes
+        }
+        return frame;
+    }
+
+    static Broadcast result(boolean correct, int correctCount) {
+        if (correctCount >= SHARED_COUNTS) {
+            return encodeResult(correct, correctCount);
+        }
+        AtomicReferenceArray<Broadcast> results = correct ? CORRECT : INCORRECT;
+        Broadcast message = results.get(correctCount);
+        if (message == null) {
+            message = encodeResult(correct, correctCount);
+            results.lazySet(correctCount, message);
+        }
+        return message;
+    }
+
+    private static Frame encodeWord(int index, int seconds, String word, boolean binary) {
+        if (binary) {
+            return Frame.encoded(BinaryCodec.word(index, seconds, word));
+        }
+        return Frame.line("WORD " + index + " " + seconds + " " + word);
+    }
+
+    private static Broadcast encodeResult(boolean correct, int correctCount) {
+        return new Broadcast(Frame.line("RESULT " + (correct ? "CORRECT " : "INCORRECT ") + correctCount),
+                Frame.encoded(BinaryCodec.result(correct, correctCount)));
+    }
+}
@@ -0,0 +1,161 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Front door of a cluster. Game nodes (servers started with -Dtypingrace.router=host:port) send
+// UDP heartbeats with their load; every new connection gets "REDIRECT <host> <port>" to the live
+// node with the most room left and is closed. The router holds no game state, so losing a node
+// only loses the rooms on it, and the router itself can be restarted at any time.
+public final class Router {
+    private static final int PORT = Integer.getInteger("typingrace.port", 1234); // TCP for players, UDP for heartbeats
+    private static final long NODE_TIMEOUT_MS = Long.getLong("typingrace.cluster.nodeTimeoutMs", 3 * ClusterNode.HEARTBEAT_MS);
+    private static final Metrics.Counter REDIRECTS = Metrics.counter("router.redirects");
+    private static final Metrics.Counter REJECTED = Metrics.counter("router.rejected");
+
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>(); // By "host:port" as the node advertises it
+
+    private Router() {
+        Metrics.gauge("router.nodes", this::liveNodes);
+    }
+
+    public static void main(String[] args) {
+        MetricsEndpoint.start();
+        new Router().run();
+    }
+
+    private void run() {
+        Thread heartbeats = new Thread(this::receiveHeartbeats, "router-heartbeats");
+        heartbeats.setDaemon(true);
+        heartbeats.start();
+        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+            Log.info("Router started. Listening on Port " + PORT);
+            while (true) {
+                Socket player = serverSocket.accept();
+                try {
+                    route(player);
+                } catch (IOException e) {
+                    Log.debug("Could not route " + player + ": " + e.getMessage());
+                } finally {
+                    try {
+                        player.close();
+                    } catch (IOException e) {
+                        Log.warn("Could not close socket");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.error("Router exception", e);
+        }
+    }
+
+    // The reply is one short line, so writing it on the accept thread never blocks for long
+    private void route(Socket player) throws IOException {
+        Node node = pick();
+        String reply;
+        if (node == null) {
+            REJECTED.increment();
+            reply = "Server unavailable, no game nodes are up. Try again later.";
+        } else {
+            REDIRECTS.increment();
+            reply = "REDIRECT " + node.host + " " + node.port;
+        }
+        OutputStream out = player.getOutputStream();
+        out.write((reply + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+        player.shutdownOutput(); // Lets the line arrive before the close
+    }
+
+    // Least loaded live node that still has room. Players sent since its last heartbeat count too,
+    // so a burst of connections spreads out instead of all landing on the same node.
+    private Node pick() {
+        long now = System.currentTimeMillis();
+        Node best = null;
+        double bestLoad = 1;
+        for (Node node : nodes.values()) {
+            if (now - node.lastSeen > NODE_TIMEOUT_MS || node.capacity <= 0) {
+                continue;
+            }
+            double load = (double) (node.sessions + node.assigned.get()) / node.capacity;
+            if (load < bestLoad) {
+                best = node;
+                bestLoad = load;
+            }
+        }
+        if (best != null) {
+            best.assigned.incrementAndGet();
+        }
+        return best;
+    }
+
+    private int liveNodes() {
+        long now = System.currentTimeMillis();
+        int live = 0;
+        for (Node node : nodes.values()) {
+            if (now - node.lastSeen <= NODE_TIMEOUT_MS) {
+                live++;
+            }
+        }
+        return live;
+    }
+
+    private void receiveHeartbeats() {
+        try (DatagramSocket socket = new DatagramSocket(PORT)) {
+            byte[] buffer = new byte[512];
+            while (true) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                onHeartbeat(new String(packet.getData(), 0, packet.getLength(), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            Log.error("Heartbeat listener stopped", e);
+        }
+    }
+
+    // NODE <host> <port> <sessions> <capacity>
+    private void onHeartbeat(String message) {
+        String[] parts = message.trim().split(" ");
+        if (parts.length != 5 || !"NODE".equals(parts[0])) {
+            Log.warn("Ignoring heartbeat: " + message);
+            return;
+        }
+        try {
+            int port = Integer.parseInt(parts[2]);
+            Node node = nodes.computeIfAbsent(parts[1] + ":" + port, key -> {
+                Log.info("Node " + key + " joined");
+                return new Node(parts[1], port);
+            });
+            if (System.currentTimeMillis() - node.lastSeen > NODE_TIMEOUT_MS && node.lastSeen != 0) {
+                Log.info("Node " + parts[1] + ":" + port + " is back");
+            }
+            node.sessions = Integer.parseInt(parts[3]);
+            node.capacity = Integer.parseInt(parts[4]);
+            node.assigned.set(0); // Its session count now includes them
+            node.lastSeen = System.currentTimeMillis();
+        } catch (NumberFormatException e) {
+            Log.warn("Ignoring heartbeat: " + message);
+        }
+    }
+
+    private static final class Node {
+        final String host;
+        final int port;
+        volatile int sessions;
+        volatile int capacity;
+        volatile long lastSeen;
+        final AtomicInteger assigned = new AtomicInteger(); // Players sent here since the last heartbeat
+
+        Node(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package typingrace;
+
+import java.net.Socket;
+
+// Everything the server knows about one connection: who is logged in on it, where it is in the
+// game and the handler that talks to it. Lobbies and rooms hold sessions directly, so nothing has
+// to look a connection up in a side table.
+public final class Session {
+    public enum State { CONNECTED, LOBBY, PLAYING, VIEWING, CLOSED }
+
+    private final long id;
+    private final Socket socket;
+    private final ClientHandler handler;
+    private volatile String username; // Null until the client logs in
+    private volatile State state = State.CONNECTED;
+    private volatile GameRoom room; // Room of the last game this session was seated in
+    private volatile long lastInputAt = System.nanoTime(); // For the idle reaper
+
+    Session(long id, Socket socket, ClientHandler handler) {
+        this.id = id;
+        this.socket = socket;
+        this.handler = handler;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Socket getSocket() {
+        return socket;
+    }
+
+    public ClientHandler getHandler() {
+        return handler;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    void setUsername(String username) {
+        this.username = username;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        if (this.state != State.CLOSED) {
+            this.state = state;
+        }
+    }
+
+    // Called for every chunk of input the client sends
+    public void touch() {
+        lastInputAt = System.nanoTime();
+    }
+
+    public long idleMillis(long now) {
+        return (now - lastInputAt) / 1_000_000;
+    }
+
+    public GameRoom getRoom() {
+        return room;
+    }
+
+    public void setRoom(GameRoom room) {
+        this.room = room;
+    }
+
+    @Override
+    public String toString() {
+        return "Session " + id + (username != null ? " (" + username + ")" : "");
+    }
+}
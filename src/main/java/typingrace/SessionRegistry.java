@@ -0,0 +1,63 @@
+package typingrace;
+
+import java.net.Socket;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// All open sessions, by connection id and by username. Both lookups are a single hash probe, and
+// closing a session removes it from both indexes, so nothing outlives its connection.
+public final class SessionRegistry {
+    private final Map<Long, Session> byId = new ConcurrentHashMap<>();
+    private final Map<String, Session> byUsername = new ConcurrentHashMap<>(); // The latest session of each logged-in user
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    public Session open(Socket socket, ClientHandler handler) {
+        Session session = new Session(nextId.getAndIncrement(), socket, handler);
+        byId.put(session.getId(), session);
+        return session;
+    }
+
+    public void login(Session session, String username) {
+        String previous = session.getUsername();
+        if (previous != null) {
+            byUsername.remove(previous, session);
+        }
+        session.setUsername(username);
+        byUsername.put(username, session);
+        if (session.getState() == Session.State.CLOSED) {
+            byUsername.remove(username, session); // Closed while we were indexing it
+        }
+    }
+
+    // Returns false if the session was already closed
+    public boolean close(Session session) {
+        if (byId.remove(session.getId()) == null) {
+            return false;
+        }
+        session.setState(Session.State.CLOSED);
+        String username = session.getUsername();
+        if (username != null) {
+            byUsername.remove(username, session); // Leaves a newer login of the same user alone
+        }
+        return true;
+    }
+
+    public Session byId(long id) {
+        return byId.get(id);
+    }
+
+    public Session byUsername(String username) {
+        return byUsername.get(username);
+    }
+
+    // Live view of the open sessions; safe to iterate while sessions come and go
+    public Collection<Session> all() {
+        return byId.values();
+    }
+
+    public int size() {
+        return byId.size();
+    }
+}
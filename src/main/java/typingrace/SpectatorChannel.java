@@ -0,0 +1,203 @@
+package typingrace;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Read-only feed of one room for spectators. The room publishes each event once into a ring
+// buffer and returns; a shared fan-out pool copies the events to the spectators, so however many
+// are watching, the racers never wait on them. A spectator that falls a full ring behind, or whose
+// connection backs up, is dropped instead of slowing anyone else.
+public final class SpectatorChannel {
+    private static final int CAPACITY = Integer.highestOneBit(Math.max(16, Integer.getInteger("typingrace.spectators.buffer", 256)));
+    private static final int FANOUT_THREADS = Integer.getInteger("typingrace.spectators.threads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final ExecutorService fanout = Executors.newFixedThreadPool(FANOUT_THREADS, r -> {
+        Thread thread = new Thread(r, "spectator-fanout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Metrics.Histogram FANOUT_TIME = Metrics.histogram("spectators.fanoutTime");
+    private static final Metrics.Counter DROPPED = Metrics.counter("spectators.dropped");
+
+    private final int roomId;
+    private final AtomicReferenceArray<Broadcast> ring = new AtomicReferenceArray<>(CAPACITY);
+    private volatile long published = 0; // Sequence number of the next event
+    private final Map<String, Integer> totals = new LinkedHashMap<>(); // Scores so far this round, for late joiners
+    private final Set<Spectator> spectators = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean draining = new AtomicBoolean(); // True while a fan-out task is scheduled
+    private final ReentrantLock lock = new ReentrantLock(); // Orders publishing against snapshots
+    private volatile boolean closed = false;
+
+    public SpectatorChannel(int roomId) {
+        this.roomId = roomId;
+    }
+
+    public int getRoomId() {
+        return roomId;
+    }
+
+    public int size() {
+        return spectators.size();
+    }
+
+    private static final class Spectator {
+        private final ClientHandler handler;
+        private long cursor; // Next event to deliver; only the fan-out task moves it after subscribing
+
+        Spectator(ClientHandler handler, long cursor) {
+            this.handler = handler;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Spectator && ((Spectator) other).handler == handler;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(handler);
+        }
+    }
+
+    // Sends the scores so far, then everything published from here on
+    public boolean subscribe(ClientHandler handler) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            String[] names = totals.keySet().toArray(new String[0]);
+            int[] scores = new int[names.length];
+            StringBuilder text = new StringBuilder("UPDATE -");
+            for (int i = 0; i < names.length; i++) {
+                scores[i] = totals.get(names[i]);
+                text.append(' ').append(names[i]).append('=').append(scores[i]);
+            }
+            String header = "SPECTATING " + roomId;
+            Broadcast snapshot = new Broadcast(Frame.line(header + (names.length > 0 ? "\n" + text : "")),
+                    Frame.encoded(BinaryCodec.text(header), BinaryCodec.scoreDelta(names, scores, names.length)));
+            handler.send(snapshot); // Queued before any catch-up event can be
+            spectators.add(new Spectator(handler, published));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void unsubscribe(ClientHandler handler) {
+        spectators.remove(new Spectator(handler, 0));
+    }
+
+    // A new round: late joiners start from an empty table
+    public void startRound(Broadcast event) {
+        lock.lock();
+        try {
+            totals.clear();
+            append(event);
+        } finally {
+            lock.unlock();
+        }
+        scheduleFanout();
+    }
+
+    // A batch of live scores; names and totals hold the changed players
+    public void publishScores(String[] names, int[] totals, int count, Broadcast event) {
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                this.totals.put(names[i], totals[i]);
+            }
+            append(event);
+        } finally {
+            lock.unlock();
+        }
+        scheduleFanout();
+    }
+
+    public void publish(Broadcast event) {
+        lock.lock();
+        try {
+            append(event);
+        } finally {
+            lock.unlock();
+        }
+        scheduleFanout();
+    }
+
+    // The room is gone
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        Broadcast end = Broadcast.text("SPECTATE_END " + roomId);
+        for (Spectator spectator : spectators) {
+            spectator.handler.send(end);
+            spectator.handler.stopSpectating(this);
+        }
+        spectators.clear();
+    }
+
+    // Caller holds the lock
+    private void append(Broadcast event) {
+        ring.set((int) (published & (CAPACITY - 1)), event);
+        published++; // Volatile write after the slot, so readers that see the new count see the event
+    }
+
+    private void scheduleFanout() {
+        if (!spectators.isEmpty() && draining.compareAndSet(false, true)) {
+            fanout.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        long end;
+        do {
+            long started = System.nanoTime();
+            end = published;
+            for (Spectator spectator : spectators) {
+                deliver(spectator, end);
+            }
+            FANOUT_TIME.recordSince(started);
+            draining.set(false);
+            // Re-check: an event published during the pass must not be stranded
+        } while (published != end && draining.compareAndSet(false, true));
+    }
+
+    private void deliver(Spectator spectator, long end) {
+        while (spectator.cursor < end) {
+            if (published - spectator.cursor >= CAPACITY || spectator.handler.outboundBacklog() >= Outbound.SOFT_LIMIT) {
+                drop(spectator); // Lapped by the ring or not reading; the players don't wait for it
+                return;
+            }
+            Broadcast event = ring.get((int) (spectator.cursor & (CAPACITY - 1)));
+            if (published - spectator.cursor >= CAPACITY) {
+                drop(spectator); // The slot was reused while we read it
+                return;
+            }
+            if (!spectator.handler.send(event)) {
+                drop(spectator);
+                return;
+            }
+            spectator.cursor++;
+        }
+    }
+
+    private void drop(Spectator spectator) {
+        DROPPED.increment();
+        spectators.remove(spectator);
+        spectator.handler.stopSpectating(this);
+        spectator.handler.send(Broadcast.text("SPECTATE_END " + roomId + " too slow"));
+    }
+}
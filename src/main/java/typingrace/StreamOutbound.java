@@ -0,0 +1,98 @@
+package typingrace;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Outbound queue for a blocking socket. Frames are written by a drain task on the writer executor,
+// so a slow client never holds up the thread that broadcast to it.
+public class StreamOutbound implements Outbound {
+    private final Socket socket;
+    private final OutputStream out; // One long-lived buffered stream per connection
+    private final Executor writerExecutor;
+    private final Queue<Frame> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger(); // Frames queued but not yet written
+    private final AtomicBoolean draining = new AtomicBoolean(); // True while a drain task is scheduled
+    private volatile boolean closed = false;
+    private volatile boolean closing = false; // Close once the queue has been written
+
+    public StreamOutbound(Socket socket, Executor writerExecutor) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream());
+        this.writerExecutor = writerExecutor;
+    }
+
+    @Override
+    public boolean offer(Frame frame) {
+        if (closed) {
+            return false;
+        }
+        int queued = depth.get();
+        if (queued >= HARD_LIMIT) {
+            CUT_OFF.increment();
+            Log.warn("Client is not reading, disconnecting " + socket);
+            close();
+            return false;
+        }
+        queue.offer(frame);
+        depth.incrementAndGet();
+        QUEUED.increment();
+        FRAMES.increment();
+        if (draining.compareAndSet(false, true)) {
+            writerExecutor.execute(this::drain);
+        }
+        return true;
+    }
+
+    @Override
+    public int backlog() {
+        return depth.get();
+    }
+
+    private void drain() {
+        do {
+            try {
+                Frame frame;
+                while ((frame = queue.poll()) != null) {
+                    depth.decrementAndGet();
+                    QUEUED.add(-1);
+                    out.write(frame.bytes());
+                }
+                out.flush(); // Everything queued since the last drain leaves in one write
+                WRITES.increment();
+            } catch (IOException e) {
+                close();
+            }
+            draining.set(false);
+            // Re-check: a frame offered after the queue ran dry must not be stranded
+        } while (!queue.isEmpty() && !closed && draining.compareAndSet(false, true));
+        if (closing && !closed) {
+            close();
+        }
+    }
+
+    @Override
+    public void closeAfterFlush() {
+        closing = true;
+        if (draining.compareAndSet(false, true)) {
+            writerExecutor.execute(this::drain); // Otherwise the running drain closes when it is done
+        }
+    }
+
+    private void close() {
+        closed = true;
+        queue.clear();
+        QUEUED.add(-depth.getAndSet(0));
+        try {
+            socket.close(); // Also ends the reader, which cleans up the session
+        } catch (IOException e) {
+            Log.warn("Could not close socket");
+        }
+    }
+}
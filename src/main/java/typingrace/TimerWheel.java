@@ -0,0 +1,230 @@
+package typingrace;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hashed timer wheel: one thread ticks through a ring of buckets and fires every timeout whose
+// deadline has come. Scheduling and cancelling are O(1) from any thread, so a process can keep a
+// per-word deadline for every player of every room without a scheduled task each. A timeout can
+// be scheduled again after it fired or was cancelled, so a deadline that moves on every word
+// costs no allocation. Closing a wheel stops its threads; timeouts that have not fired never will.
+public final class TimerWheel implements Runnable, AutoCloseable {
+    private static final long TICK_MILLIS = Long.getLong("typingrace.timer.tickMs", 10); // Resolution, and the drift bound
+    private static final int WHEEL_SIZE = 512; // Buckets; a power of two
+
+    private static final TimerWheel shared = new TimerWheel(TICK_MILLIS, WHEEL_SIZE);
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final AtomicReference<Timeout> handedOver = new AtomicReference<>(); // Scheduled or cancelled since the last tick, linked through the timeouts
+    private final ExecutorService dispatcher; // Runs expired tasks so a slow one never delays the wheel
+    private final Thread ticker;
+    private final long startTime;
+    private long tick = 0;
+
+    public TimerWheel(long tickMillis, int wheelSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, tickMillis));
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.dispatcher = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+            Thread thread = new Thread(r, "timer-dispatch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.startTime = System.nanoTime();
+        this.ticker = new Thread(this, "timer-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    public static TimerWheel shared() {
+        return shared;
+    }
+
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task);
+        timeout.schedule(delay, unit);
+        return timeout;
+    }
+
+    // A timeout that is not scheduled yet, for a task that runs again and again
+    public Timeout timeout(Runnable task) {
+        return new Timeout(task);
+    }
+
+    // Stops the tick thread and the dispatcher; a task already running is left to finish
+    @Override
+    public void close() {
+        ticker.interrupt();
+        dispatcher.shutdown();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long tickTime = startTime + tick * tickNanos; // When this tick's bucket is due; placement rounds up, so nothing in it fires early
+            long sleepNanos = tickTime - System.nanoTime();
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos); // Sleep to an absolute time so ticks never drift
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            takeHandedOver();
+            expire(wheel[(int) (tick & mask)], System.nanoTime());
+            tick++;
+        }
+    }
+
+    // Lock-free push; a timeout already waiting for the tick thread is not pushed twice, the tick
+    // thread reads its latest deadline and state when it gets to it
+    private void handOver(Timeout timeout) {
+        if (!timeout.handedOver.compareAndSet(false, true)) {
+            return;
+        }
+        Timeout head;
+        do {
+            head = handedOver.get();
+            timeout.nextHandedOver = head;
+        } while (!handedOver.compareAndSet(head, timeout));
+    }
+
+    // Unlinks every timeout that changed since the last tick and puts the pending ones where their deadline falls
+    private void takeHandedOver() {
+        Timeout timeout = handedOver.getAndSet(null);
+        while (timeout != null) {
+            Timeout next = timeout.nextHandedOver;
+            timeout.nextHandedOver = null;
+            timeout.handedOver.set(false); // A change from now on is handed over again
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            if (Timeout.status(timeout.control.get()) == Timeout.PENDING) {
+                long dueTick = (timeout.deadline - startTime + tickNanos - 1) / tickNanos; // Round up, never fire early
+                timeout.remainingRounds = (dueTick - tick) / wheel.length;
+                wheel[(int) (Math.max(dueTick, tick) & mask)].add(timeout);
+            }
+            timeout = next;
+        }
+    }
+
+    private void expire(Bucket bucket, long now) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                long control = timeout.control.get();
+                if (timeout.deadline - now <= 0 || timeout.remainingRounds < 0) {
+                    // Fails if it was cancelled or scheduled again since this tick read it
+                    if (Timeout.status(control) == Timeout.PENDING && timeout.control.compareAndSet(control, control + Timeout.EXPIRED)) {
+                        dispatcher.execute(timeout.task);
+                    }
+                } else {
+                    handOver(timeout); // Rounding put it a tick early, place it again
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    public final class Timeout {
+        private static final long PENDING = 0;
+        private static final long CANCELLED = 1;
+        private static final long EXPIRED = 2;
+        private static final long IDLE = 3; // Not scheduled yet
+        private static final long GENERATION = 4; // Added for every schedule, above the two status bits
+
+        private final Runnable task;
+        private volatile long deadline; // nanoTime
+        private final AtomicLong control = new AtomicLong(IDLE); // Generation and status, so a stale expiry can't win a CAS
+        private final AtomicBoolean handedOver = new AtomicBoolean();
+        private Timeout nextHandedOver;
+        private long remainingRounds;
+        // Bucket links, only touched by the tick thread
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+
+        private static long status(long control) {
+            return control & (GENERATION - 1);
+        }
+
+        // Arms the task to run after the delay, replacing whatever deadline it had before. A run of
+        // the previous deadline that was already handed to the dispatcher still happens.
+        public void schedule(long delay, TimeUnit unit) {
+            deadline = System.nanoTime() + unit.toNanos(delay);
+            long current;
+            do {
+                current = control.get();
+            } while (!control.compareAndSet(current, (current - status(current) + GENERATION) | PENDING));
+            handOver(this);
+        }
+
+        // Returns false if the task already ran or was cancelled before
+        public boolean cancel() {
+            long current = control.get();
+            if (status(current) != PENDING || !control.compareAndSet(current, current + CANCELLED)) {
+                return false;
+            }
+            handOver(this); // The tick thread unlinks it from its bucket
+            return true;
+        }
+    }
+
+    // Doubly linked list of timeouts, so removal is O(1)
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
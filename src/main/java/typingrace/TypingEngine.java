@@ -0,0 +1,247 @@
+package typingrace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Headless, server-side game logic for one room: hands out the words, enforces each word's deadline
+// and checks what the players typed. Players are addressed by seat number; timing uses System.nanoTime().
+public class TypingEngine {
+    private static final TimerWheel deadlines = TimerWheel.shared(); // One wheel drives the word deadlines of every room
+
+    public interface Listener {
+        void onWord(int seat, int index, int seconds, String word); // The player must type this word next
+        void onResult(int seat, int index, String word, boolean correct, int correctCount, long millis); // A word was submitted or timed out
+        void onFinished(int seat, Result result); // The player went through every word
+    }
+
+    public static final class Result {
+        public final int correctCount;
+        public final long averageMillis; // Average time spent per word
+        public final List<String> incorrectWords;
+        public final long[] typingTimes; // Milliseconds spent on each word, in order
+
+        Result(int correctCount, long[] typingTimes, List<String> incorrectWords) {
+            this.correctCount = correctCount;
+            this.typingTimes = typingTimes;
+            this.incorrectWords = incorrectWords;
+            long total = 0;
+            for (long time : typingTimes) {
+                total += time;
+            }
+            this.averageMillis = typingTimes.length == 0 ? 0 : total / typingTimes.length;
+        }
+
+        // What a player who quit or left gets
+        public static Result forfeit() {
+            return new Result(0, new long[0], new ArrayList<>());
+        }
+    }
+
+    private final WordCorpus.Snapshot corpus;
+    private final int[] sequence; // Corpus index of each word of the game, shared by all seats
+    private final String[] words; // The same words decoded once, so handing them out builds no Strings
+    private final Listener listener;
+    private final Player[] players;
+
+    public TypingEngine(WordCorpus.Snapshot corpus, int[] sequence, int seats, Listener listener) {
+        this.corpus = corpus;
+        this.sequence = sequence;
+        this.words = new String[sequence.length];
+        for (int i = 0; i < sequence.length; i++) {
+            words[i] = corpus.word(sequence[i]);
+        }
+        this.listener = listener;
+        this.players = new Player[seats];
+        for (int i = 0; i < seats; i++) {
+            Player player = new Player(i, sequence.length);
+            player.timeout = deadlines.timeout(() -> advance(player, null, 0, 0)); // Rescheduled for every word
+            players[i] = player;
+        }
+    }
+
+    // The round's words in order, as handed to the listener; callers must not modify the array
+    String[] words() {
+        return words;
+    }
+
+    // Seconds allowed for the word at this position; the limit shrinks as the game goes on
+    public static int secondsFor(int index) {
+        return index < 25 ? 30 - index : 6;
+    }
+
+    public void start(int seat) {
+        Player player = players[seat];
+        player.lock.lock();
+        try {
+            if (sequence.length == 0) {
+                player.finished = true;
+            } else {
+                scheduleWord(player, TimeUnit.SECONDS.toMillis(secondsFor(0)));
+            }
+        } finally {
+            player.lock.unlock();
+        }
+        if (sequence.length == 0) {
+            listener.onFinished(seat, Result.forfeit());
+        } else {
+            listener.onWord(seat, 0, secondsFor(0), words[0]);
+        }
+    }
+
+    // The typed word as UTF-8, typically still in the connection's receive buffer; only read during the call
+    public void submit(int seat, byte[] typed, int offset, int length) {
+        advance(players[seat], typed, offset, length);
+    }
+
+    // Puts a seat back where a saved round left it. Its clock stays stopped until rejoin, and then
+    // the current word gets the time that was left on it.
+    public void restore(int seat, int index, int correctCount, long[] typingTimes, List<String> incorrectWords, boolean finished,
+            long remainingMillis) {
+        Player player = players[seat];
+        player.lock.lock();
+        try {
+            player.index = index;
+            player.correctCount = correctCount;
+            player.typingTimes = Arrays.copyOf(typingTimes, Math.max(typingTimes.length, sequence.length));
+            player.timeCount = typingTimes.length;
+            player.incorrectWords.addAll(incorrectWords);
+            player.finished = finished || index >= sequence.length;
+            player.remainingMillis = remainingMillis;
+        } finally {
+            player.lock.unlock();
+        }
+    }
+
+    // The player is back on a new connection: starts a restored seat's clock and hands out the
+    // current word again with the seconds it has left
+    public void rejoin(int seat) {
+        Player player = players[seat];
+        int index;
+        long remaining;
+        player.lock.lock();
+        try {
+            if (player.finished) {
+                return;
+            }
+            if (!player.timing) {
+                long limit = TimeUnit.SECONDS.toMillis(secondsFor(player.index));
+                scheduleWord(player, player.remainingMillis);
+                player.wordStarted -= TimeUnit.MILLISECONDS.toNanos(limit - player.remainingMillis); // Time already spent still counts
+            }
+            index = player.index;
+            remaining = TimeUnit.NANOSECONDS.toMillis(player.deadline - System.nanoTime());
+        } finally {
+            player.lock.unlock();
+        }
+        listener.onWord(seat, index, (int) Math.max(1, (remaining + 999) / 1000), words[index]);
+    }
+
+    // The player quit; their timer stops and nothing they send counts any more
+    public void forfeit(int seat) {
+        Player player = players[seat];
+        player.lock.lock();
+        try {
+            player.finished = true;
+            cancelTimeout(player);
+        } finally {
+            player.lock.unlock();
+        }
+    }
+
+    // The round is replaced or over: every seat stops, and no deadline of it fires any more
+    public void stop() {
+        for (Player player : players) {
+            forfeit(player.seat);
+        }
+    }
+
+    // typed is null when the word timed out. Nothing on this path allocates unless the round ends.
+    private void advance(Player player, byte[] typed, int offset, int length) {
+        String word;
+        boolean correct;
+        int correctCount;
+        int answeredIndex;
+        long millis;
+        int nextIndex;
+        Result result = null;
+        player.lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (player.finished || (typed == null && (!player.timing || now - player.deadline < 0))) {
+                return; // Already over, or the expiry of a word that was answered in time
+            }
+            cancelTimeout(player);
+            word = words[player.index];
+            correct = typed != null && now - player.deadline <= 0 && corpus.matchesIgnoreCase(sequence[player.index], typed, offset, length);
+            millis = TimeUnit.NANOSECONDS.toMillis(now - player.wordStarted);
+            if (player.timeCount == player.typingTimes.length) {
+                player.typingTimes = Arrays.copyOf(player.typingTimes, player.timeCount + 1); // Only a restored seat can get here
+            }
+            player.typingTimes[player.timeCount++] = millis;
+            if (correct) {
+                player.correctCount++;
+            } else {
+                player.incorrectWords.add(word);
+            }
+            correctCount = player.correctCount;
+            answeredIndex = player.index;
+            player.index++;
+            nextIndex = player.index;
+            if (nextIndex < sequence.length) {
+                scheduleWord(player, TimeUnit.SECONDS.toMillis(secondsFor(nextIndex)));
+            } else {
+                player.finished = true;
+                long[] times = Arrays.copyOf(player.typingTimes, player.timeCount);
+                result = new Result(player.correctCount, times, new ArrayList<>(player.incorrectWords));
+            }
+        } finally {
+            player.lock.unlock();
+        }
+        // Listeners run outside the lock so the result always reaches the player before the next word
+        listener.onResult(player.seat, answeredIndex, word, correct, correctCount, millis);
+        if (result != null) {
+            listener.onFinished(player.seat, result);
+        } else {
+            listener.onWord(player.seat, nextIndex, secondsFor(nextIndex), words[nextIndex]);
+        }
+    }
+
+    // Starts the clock on the player's current word. Caller holds the player's lock.
+    private void scheduleWord(Player player, long millis) {
+        player.wordStarted = System.nanoTime();
+        player.deadline = player.wordStarted + TimeUnit.MILLISECONDS.toNanos(millis);
+        player.timeout.schedule(millis, TimeUnit.MILLISECONDS); // The wheel's deadline is never before ours
+        player.timing = true;
+    }
+
+    private void cancelTimeout(Player player) {
+        if (player.timing) {
+            player.timeout.cancel(); // O(1), the wheel unlinks it on its next tick
+            player.timing = false;
+        }
+    }
+
+    private static final class Player {
+        private final int seat;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] typingTimes; // Milliseconds spent on each answered word, sized for the whole round
+        private int timeCount = 0;
+        private final List<String> incorrectWords = new ArrayList<>();
+        private int index = 0; // Word the player is on
+        private int correctCount = 0;
+        private long wordStarted; // nanoTime the current word was handed out
+        private long deadline; // nanoTime after which the current word counts as missed
+        private long remainingMillis; // Time left on the current word of a restored seat
+        private TimerWheel.Timeout timeout; // Set once, scheduled again for every word
+        private boolean timing = false; // The current word's deadline is scheduled
+        private boolean finished = false;
+
+        Player(int seat, int words) {
+            this.seat = seat;
+            this.typingTimes = new long[words];
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package typingrace;
+
+import java.util.Arrays;
+
+// Streaming typing statistics built from keystroke intervals: words per minute, accuracy, the
+// fastest burst and interval percentiles. Everything is kept in counters and a fixed log-scale
+// histogram, so a whole game, or a player's whole history, costs the same few hundred bytes.
+// Not thread-safe; KeystrokeLog guards it.
+public final class TypingStats {
+    private static final int BURST_KEYS = 10; // Burst speed is the fastest run of this many keys
+    private static final int MAX_INTERVAL_MS = 60_000;
+    private static final int EXACT_BUCKETS = 16; // Intervals below this many ms get a bucket each
+    private static final int SUB_BUCKETS = 8; // Above that, each power of two is split in 8
+    private static final int BUCKETS = EXACT_BUCKETS + (31 - Integer.numberOfLeadingZeros(MAX_INTERVAL_MS) - 3) * SUB_BUCKETS;
+
+    private long keys; // Characters typed, backspaces not included
+    private long backspaces;
+    private long typingMillis;
+    private long correctChars; // Characters of the words that were accepted
+    private final long[] histogram = new long[BUCKETS];
+    private final int[] window = new int[BURST_KEYS]; // The last BURST_KEYS intervals
+    private int windowFill;
+    private int windowNext;
+    private long windowSum;
+    private long bestBurstMillis = Long.MAX_VALUE;
+
+    public void record(int intervalMillis, boolean backspace) {
+        int interval = Math.max(0, Math.min(MAX_INTERVAL_MS, intervalMillis));
+        typingMillis += interval;
+        histogram[bucket(interval)]++;
+        if (backspace) {
+            backspaces++;
+            windowFill = 0; // A correction ends the burst
+            windowSum = 0;
+            return;
+        }
+        keys++;
+        if (windowFill == BURST_KEYS) {
+            windowSum -= window[windowNext];
+        } else {
+            windowFill++;
+        }
+        window[windowNext] = interval;
+        windowSum += interval;
+        windowNext = (windowNext + 1) % BURST_KEYS;
+        if (windowFill == BURST_KEYS && windowSum < bestBurstMillis) {
+            bestBurstMillis = windowSum;
+        }
+    }
+
+    public void addCorrectChars(int count) {
+        correctChars += count;
+    }
+
+    public void clear() {
+        keys = 0;
+        backspaces = 0;
+        typingMillis = 0;
+        correctChars = 0;
+        Arrays.fill(histogram, 0);
+        windowFill = 0;
+        windowNext = 0;
+        windowSum = 0;
+        bestBurstMillis = Long.MAX_VALUE;
+    }
+
+    // Adds everything another game recorded; the burst is the better of the two
+    public void merge(TypingStats other) {
+        keys += other.keys;
+        backspaces += other.backspaces;
+        typingMillis += other.typingMillis;
+        correctChars += other.correctChars;
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] += other.histogram[i];
+        }
+        bestBurstMillis = Math.min(bestBurstMillis, other.bestBurstMillis);
+    }
+
+    public long keys() {
+        return keys;
+    }
+
+    // Net speed: accepted characters, five to a word, over the time spent typing
+    public double wordsPerMinute() {
+        return typingMillis == 0 ? 0 : correctChars / 5.0 / (typingMillis / 60_000.0);
+    }
+
+    // Share of keystrokes that did not have to be taken back
+    public double accuracy() {
+        return keys == 0 ? 0 : Math.max(0, keys - backspaces) / (double) keys;
+    }
+
+    public double burstWordsPerMinute() {
+        return bestBurstMillis == Long.MAX_VALUE || bestBurstMillis == 0 ? 0 : BURST_KEYS / 5.0 / (bestBurstMillis / 60_000.0);
+    }
+
+    // Upper bound of the bucket holding the given percentile of intervals, in ms
+    public int percentileMillis(double percentile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= Math.max(1, rank)) {
+                return bucketLimit(i);
+            }
+        }
+        return MAX_INTERVAL_MS;
+    }
+
+    // One line for the STATS command and the end of a game
+    public String describe() {
+        return String.format("wpm=%.1f accuracy=%.1f%% burst=%.1f p50=%dms p90=%dms p99=%dms keys=%d",
+                wordsPerMinute(), accuracy() * 100, burstWordsPerMinute(),
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), keys);
+    }
+
+    private static int bucket(int interval) {
+        if (interval < EXACT_BUCKETS) {
+            return interval;
+        }
+        int exponent = 31 - Integer.numberOfLeadingZeros(interval); // At least 4
+        int sub = (interval >> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, EXACT_BUCKETS + (exponent - 4) * SUB_BUCKETS + sub);
+    }
+
+    private static int bucketLimit(int bucket) {
+        if (bucket < EXACT_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - EXACT_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (bucket - EXACT_BUCKETS) % SUB_BUCKETS;
+        return Math.min(MAX_INTERVAL_MS, ((SUB_BUCKETS + sub + 1) << (exponent - 3)) - 1);
+    }
+}
@@ -0,0 +1,12 @@
+package typingrace;
+
+// Where accounts are kept. Implementations must be safe to call from several verifier threads.
+public interface UserStore {
+    // Returns false if the username is already taken
+    boolean add(String username, PasswordHash hash);
+
+    // Returns null for unknown usernames
+    PasswordHash find(String username);
+
+    int size();
+}
@@ -0,0 +1,189 @@
+package typingrace;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The word list, loaded once and shared read-only by every room. All words live back to back in
+// one UTF-8 byte arena with an offset table, instead of a String object per word per game.
+// The file is re-read when it changes; rooms keep the snapshot they started with.
+public final class WordCorpus {
+    private static final String WORDS_FILE = System.getProperty("typingrace.words", "words.txt");
+    private static final long RELOAD_CHECK_MILLIS = Long.getLong("typingrace.words.reloadMs", 2000); // 0 disables reloading
+
+    private static final WordCorpus shared = new WordCorpus(new File(WORDS_FILE));
+
+    private final File file;
+    private volatile Snapshot current;
+    private volatile long loadedModified; // lastModified of the file the current snapshot came from
+
+    private WordCorpus(File file) {
+        this.file = file;
+        reload();
+        if (RELOAD_CHECK_MILLIS > 0) {
+            scheduleReloadCheck();
+        }
+    }
+
+    public static WordCorpus shared() {
+        return shared;
+    }
+
+    public Snapshot current() {
+        return current;
+    }
+
+    private void scheduleReloadCheck() {
+        TimerWheel.shared().schedule(() -> {
+            if (file.lastModified() != loadedModified) {
+                reload();
+            }
+            scheduleReloadCheck();
+        }, RELOAD_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void reload() {
+        long modified = file.lastModified();
+        try {
+            Snapshot snapshot = load(file.toPath());
+            current = snapshot;
+            loadedModified = modified;
+            Log.info("Loaded " + snapshot.size() + " words from " + file);
+        } catch (IOException e) {
+            Log.warn("Could not read " + file + ": " + e.getMessage());
+            loadedModified = modified; // Don't retry a broken file until it changes again
+            if (current == null) {
+                current = new Snapshot(new byte[0], new int[] {0});
+            }
+        }
+    }
+
+    // Maps the file and packs every non-blank, trimmed line into the arena
+    static Snapshot load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Word file too large");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            byte[] arena = new byte[(int) size]; // Upper bound, trimmed below
+            int[] offsets = new int[1024];
+            int count = 0;
+            int arenaLength = 0;
+            int lineStart = 0;
+            int limit = (int) size;
+            for (int pos = 0; pos <= limit; pos++) {
+                if (pos < limit && mapped.get(pos) != '\n') {
+                    continue;
+                }
+                int start = lineStart;
+                int end = pos;
+                while (start < end && isWhitespace(mapped.get(start))) {
+                    start++;
+                }
+                while (end > start && isWhitespace(mapped.get(end - 1))) {
+                    end--;
+                }
+                if (end > start) {
+                    if (count + 2 > offsets.length) {
+                        offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                    }
+                    offsets[count++] = arenaLength;
+                    mapped.get(start, arena, arenaLength, end - start);
+                    arenaLength += end - start;
+                }
+                lineStart = pos + 1;
+            }
+            offsets[count] = arenaLength; // End of the last word
+            return new Snapshot(Arrays.copyOf(arena, arenaLength), Arrays.copyOf(offsets, count + 1));
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    // An immutable version of the word list
+    public static final class Snapshot {
+        private final byte[] arena;
+        private final int[] offsets; // Word i is arena[offsets[i], offsets[i + 1])
+
+        Snapshot(byte[] arena, int[] offsets) {
+            this.arena = arena;
+            this.offsets = offsets;
+        }
+
+        // Just these words, in this order; a room restored after a restart keeps the words it started with
+        public static Snapshot of(List<String> words) {
+            byte[][] encoded = new byte[words.size()][];
+            int[] offsets = new int[words.size() + 1];
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = words.get(i).getBytes(StandardCharsets.UTF_8);
+                offsets[i + 1] = offsets[i] + encoded[i].length;
+            }
+            byte[] arena = new byte[offsets[encoded.length]];
+            for (int i = 0; i < encoded.length; i++) {
+                System.arraycopy(encoded[i], 0, arena, offsets[i], encoded[i].length);
+            }
+            return new Snapshot(arena, offsets);
+        }
+
+        public int size() {
+            return offsets.length - 1;
+        }
+
+        public int length(int index) {
+            return offsets[index + 1] - offsets[index];
+        }
+
+        public String word(int index) {
+            return new String(arena, offsets[index], length(index), StandardCharsets.UTF_8);
+        }
+
+        // Case-insensitive comparison of typed UTF-8 bytes, straight from a receive buffer, against the
+        // packed word. Plain ASCII folds case byte by byte; only non-ASCII text is decoded to compare.
+        public boolean matchesIgnoreCase(int index, byte[] typed, int offset, int length) {
+            int start = offsets[index];
+            int wordLength = length(index);
+            if (length != wordLength) {
+                boolean nonAscii = isNonAscii(arena, start, wordLength) || isNonAscii(typed, offset, length);
+                return nonAscii && matchesAsText(index, typed, offset, length); // Case folding can change the byte length
+            }
+            for (int i = 0; i < length; i++) {
+                int expected = arena[start + i];
+                int actual = typed[offset + i];
+                if (expected < 0 || actual < 0) {
+                    return matchesAsText(index, typed, offset, length); // Multi-byte UTF-8
+                }
+                if (actual != expected && toLowerAscii(actual) != toLowerAscii(expected)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean matchesAsText(int index, byte[] typed, int offset, int length) {
+            return new String(typed, offset, length, StandardCharsets.UTF_8).equalsIgnoreCase(word(index));
+        }
+
+        private static boolean isNonAscii(byte[] bytes, int start, int length) {
+            for (int i = 0; i < length; i++) {
+                if (bytes[start + i] < 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int toLowerAscii(int c) {
+            return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package typingrace;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+// Picks the words of a game so they get harder as the game goes on. Every word of a corpus snapshot
+// gets a difficulty score once (length, how rare its letters are, how unusual its letter pairs are)
+// and is filed into one of a few difficulty buckets. A game is then drawn from a seed in time
+// proportional to its length: position i takes an unused word from bucket i * buckets / length.
+public final class WordSelector {
+    private static final int MAX_BUCKETS = 10;
+    // Relative frequency of a..z in English text, per thousand letters
+    private static final double[] LETTER_FREQUENCY = {
+        82, 15, 28, 43, 127, 22, 20, 61, 70, 1.5, 7.7, 40, 24, 67, 75, 19, 0.95, 60, 63, 91, 28, 9.8, 24, 1.5, 20, 0.74
+    };
+
+    private static volatile WordSelector cached; // Index of the latest snapshot, rebuilt when the corpus reloads
+
+    private final WordCorpus.Snapshot corpus;
+    private final int[] byDifficulty; // Corpus indexes, easiest first
+    private final int[] bucketStart; // Bucket b is byDifficulty[bucketStart[b], bucketStart[b + 1])
+
+    private WordSelector(WordCorpus.Snapshot corpus) {
+        this.corpus = corpus;
+        int size = corpus.size();
+        double[] scores = score(corpus);
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(scores[a], scores[b]));
+        byDifficulty = new int[size];
+        for (int i = 0; i < size; i++) {
+            byDifficulty[i] = order[i];
+        }
+        int buckets = Math.max(1, Math.min(MAX_BUCKETS, size));
+        bucketStart = new int[buckets + 1];
+        for (int b = 0; b <= buckets; b++) {
+            bucketStart[b] = (int) ((long) size * b / buckets);
+        }
+    }
+
+    public static WordSelector forCorpus(WordCorpus.Snapshot corpus) {
+        WordSelector selector = cached;
+        if (selector == null || selector.corpus != corpus) {
+            selector = new WordSelector(corpus);
+            cached = selector;
+        }
+        return selector;
+    }
+
+    // A reproducible sequence of corpus indexes of the given length, easy words first
+    public int[] sequence(int length, long seed) {
+        int buckets = bucketStart.length - 1;
+        if (byDifficulty.length == 0) {
+            return new int[0];
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] offset = new int[buckets]; // Where this game starts walking each bucket
+        int[] step = new int[buckets]; // Stride coprime to the bucket size, so a walk visits distinct words
+        int[] taken = new int[buckets];
+        for (int b = 0; b < buckets; b++) {
+            int bucketSize = bucketStart[b + 1] - bucketStart[b];
+            offset[b] = random.nextInt(bucketSize);
+            step[b] = coprimeStep(bucketSize, random);
+        }
+        int[] sequence = new int[length];
+        for (int i = 0; i < length; i++) {
+            int b = (int) ((long) i * buckets / length);
+            int bucketSize = bucketStart[b + 1] - bucketStart[b];
+            int pick = (int) ((offset[b] + (long) taken[b]++ * step[b]) % bucketSize);
+            sequence[i] = byDifficulty[bucketStart[b] + pick];
+        }
+        return sequence;
+    }
+
+    private static int coprimeStep(int size, SplittableRandom random) {
+        if (size <= 2) {
+            return 1;
+        }
+        int step = 1 + random.nextInt(size - 1);
+        while (gcd(step, size) != 1) {
+            step = step % (size - 1) + 1;
+        }
+        return step;
+    }
+
+    private static int gcd(int a, int b) {
+        while (b != 0) {
+            int t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    private static double[] score(WordCorpus.Snapshot corpus) {
+        int size = corpus.size();
+        // Letter pair frequencies of this corpus, for the bigram term
+        long[] pairCounts = new long[26 * 26];
+        long totalPairs = 0;
+        for (int i = 0; i < size; i++) {
+            String word = corpus.word(i);
+            for (int j = 1; j < word.length(); j++) {
+                int a = letter(word.charAt(j - 1));
+                int b = letter(word.charAt(j));
+                if (a >= 0 && b >= 0) {
+                    pairCounts[a * 26 + b]++;
+                    totalPairs++;
+                }
+            }
+        }
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            String word = corpus.word(i);
+            double letterRarity = 0;
+            double pairRarity = 0;
+            int pairs = 0;
+            for (int j = 0; j < word.length(); j++) {
+                int a = letter(word.charAt(j));
+                letterRarity += a >= 0 ? -Math.log(LETTER_FREQUENCY[a] / 1000) / Math.log(2) : 10; // Bits; symbols count as rare
+                if (j > 0) {
+                    int prev = letter(word.charAt(j - 1));
+                    if (prev >= 0 && a >= 0 && totalPairs > 0) {
+                        double p = (pairCounts[prev * 26 + a] + 1.0) / (totalPairs + 26 * 26);
+                        pairRarity += -Math.log(p) / Math.log(2);
+                        pairs++;
+                    }
+                }
+            }
+            int length = Math.max(1, word.length());
+            scores[i] = word.length() + 1.5 * letterRarity / length + (pairs > 0 ? pairRarity / pairs : 0);
+        }
+        return scores;
+    }
+
+    private static int letter(char c) {
+        char lower = Character.toLowerCase(c);
+        return lower >= 'a' && lower <= 'z' ? lower - 'a' : -1;
+    }
+}
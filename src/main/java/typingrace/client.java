@@ -0,0 +1,331 @@
+package typingrace;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import javax.swing.SwingUtilities;
+
+public class client {
+    private static final String HOST = System.getProperty("typingrace.host", "localhost");
+    private static final int PORT = Integer.getInteger("typingrace.port", 1234);
+    private static String userName;
+    private static volatile Socket socket; // Replaced when a cluster router redirects us
+    private static volatile PrintWriter out;
+    private static volatile OutputStream rawOut; // Used for binary messages once the protocol is negotiated
+    private static boolean binary = false; // Start with "--binary" to use the compact protocol
+    private static final Map<String, Integer> liveScores = new LinkedHashMap<>(); // Rebuilt from binary score deltas
+    private static final CountDownLatch greeted = new CountDownLatch(1); // Game server reached, past any router
+    private static final int RESUME_ATTEMPTS = 30; // About as long as the server holds a dropped player's seat
+    private static final long RESUME_RETRY_MS = 1000;
+    private static volatile String resumeToken; // Held while a game runs, to take the seat back after a dropped connection
+    private static volatile String pendingResume;
+    private static DisplayWords displayWords; // Game window, opened when the server starts a game; only touched on the EDT
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 1 && "--bots".equals(args[0])) {
+            LoadBot.run(Integer.parseInt(args[1])); // Headless load generator instead of a player
+            return;
+        }
+        binary = args.length > 0 && "--binary".equals(args[0]);
+        try {
+            connect(HOST, PORT);
+            BufferedReader stdIn = new BufferedReader(new InputStreamReader(System.in));
+
+            Thread readerThread = new Thread(() -> {
+                try {
+                    while (true) {
+                        String redirect = null;
+                        try {
+                            redirect = read(socket.getInputStream());
+                        } catch (IOException e) {
+                            if (resumeToken == null) {
+                                throw e;
+                            }
+                        }
+                        socket.close();
+                        if (redirect != null && redirect.startsWith("SERVER_FULL ")) {
+                            long retryAfter = Long.parseLong(redirect.substring(12).trim());
+                            System.out.println("The server is full, trying again in " + retryAfter + " ms...");
+                            Thread.sleep(retryAfter);
+                            connect(HOST, PORT); // Through the router again, if there is one
+                        } else if (redirect != null) {
+                            String[] target = redirect.split(" "); // REDIRECT <host> <port> from a cluster router
+                            connect(target[1], Integer.parseInt(target[2]));
+                        } else if (resumeToken == null || !reconnect()) {
+                            break;
+                        }
+                    }
+                } catch (IOException e) {
+                    System.err.println("Error reading from server");
+                    e.printStackTrace();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    greeted.countDown(); // Never leave the input loop waiting on a dead connection
+                }
+            });
+
+            readerThread.start();
+            greeted.await(); // Nothing typed may reach the router
+
+            String userInput;
+            while ((userInput = stdIn.readLine()) != null) {
+                if (userInput.trim().length() > 0) {
+                    //System.out.println("Sending to server: " + userInput); debugging statement
+                    sendCommand(userInput);
+                }
+            }
+
+        } catch (IOException e) {
+            System.err.println("Couldn't get I/O for the connection to " + HOST);
+            e.printStackTrace();
+        }
+    }
+
+    // The connection dropped mid-game: tries the same server again for a while and asks for the seat back
+    private static boolean reconnect() throws IOException {
+        String host = socket.getInetAddress().getHostAddress();
+        int port = socket.getPort();
+        System.out.println("Connection lost, trying to resume...");
+        for (int attempt = 0; attempt < RESUME_ATTEMPTS; attempt++) {
+            try {
+                Thread.sleep(RESUME_RETRY_MS);
+                connect(host, port);
+                pendingResume = resumeToken; // Sent once the server greets us
+                return true;
+            } catch (ConnectException e) {
+                // Not back up yet
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        System.out.println("Could not resume the game.");
+        return false;
+    }
+
+    private static void connect(String host, int port) throws IOException {
+        socket = new Socket(host, port);
+        rawOut = socket.getOutputStream();
+        out = new PrintWriter(rawOut, true);
+    }
+
+    // Handles everything the server sends until it closes the connection. Returns the router's
+    // REDIRECT line or the server's SERVER_FULL line if that is what this connection turned out to be.
+    private static String read(InputStream in) throws IOException {
+        LineDecoder lineDecoder = new LineDecoder();
+        BinaryCodec.Decoder binaryDecoder = null; // Set once the server acknowledged the binary protocol
+        boolean first = true;
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+            while (chunk.hasRemaining()) {
+                if (binaryDecoder != null) {
+                    binaryDecoder.decode(chunk, client::handleMessage);
+                    break;
+                }
+                String fromServer = lineDecoder.next(chunk);
+                if (fromServer == null) {
+                    break;
+                }
+                if (first && (fromServer.startsWith("REDIRECT ") || fromServer.startsWith("SERVER_FULL "))) {
+                    return fromServer;
+                }
+                if (first && binary) {
+                    out.println(BinaryCodec.NEGOTIATION); // Sent once we know this is the game server; everything after it is binary
+                }
+                if (first && pendingResume != null) {
+                    sendCommand("RESUME " + pendingResume);
+                    pendingResume = null;
+                }
+                first = false;
+                greeted.countDown();
+                if (binary && BinaryCodec.NEGOTIATION.equals(fromServer)) {
+                    binaryDecoder = new BinaryCodec.Decoder();
+                    continue;
+                }
+                handleLine(fromServer);
+            }
+        }
+        return null;
+    }
+
+    // Sends one or more lines of the text protocol in a single write, each wrapped in a binary
+    // message if that protocol is in use
+    private static void sendCommand(String lines) {
+        if (!binary) {
+            out.println(lines); // One flush for all of them
+            return;
+        }
+        ByteArrayOutputStream messages = new ByteArrayOutputStream();
+        for (String line : lines.split("\n")) {
+            if (line.startsWith("SUBMIT ")) {
+                messages.writeBytes(BinaryCodec.submit(line.substring(7)));
+            } else if (line.startsWith("KEYS ")) {
+                String[] parts = line.substring(5).split(" ");
+                int[] events = new int[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    events[i] = Integer.parseInt(parts[i]);
+                }
+                messages.writeBytes(BinaryCodec.keys(events, events.length));
+            } else {
+                messages.writeBytes(BinaryCodec.text(line));
+            }
+        }
+        try {
+            synchronized (rawOut) {
+                messages.writeTo(rawOut);
+                rawOut.flush();
+            }
+        } catch (IOException e) {
+            System.err.println("Error sending to server: " + e.getMessage());
+        }
+    }
+
+    private static void handleLine(String fromServer) {
+        if (fromServer.startsWith("GAME_START")) {
+            SwingUtilities.invokeLater(() -> {
+                if (displayWords == null) {
+                    displayWords = new DisplayWords(userName, client::sendCommand);
+                }
+                displayWords.startRound();
+                displayWords.setVisible(true);
+            });
+            liveScores.clear();
+            return;
+        } else if (fromServer.startsWith("SPECTATING ")) {
+            SwingUtilities.invokeLater(() -> {
+                if (displayWords == null) {
+                    displayWords = new DisplayWords(userName, client::sendCommand);
+                }
+                displayWords.spectate();
+                displayWords.setVisible(true);
+            });
+            liveScores.clear(); // The room's current scores follow
+        } else if (fromServer.startsWith("ROUND_START ")) {
+            liveScores.clear();
+        } else if (fromServer.startsWith("WORD ")) {
+            String[] parts = fromServer.split(" ", 4);
+            showWord(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts.length > 3 ? parts[3] : "");
+            return;
+        } else if (fromServer.startsWith("RESULT ")) {
+            String[] parts = fromServer.split(" ");
+            showResult("CORRECT".equals(parts[1]), Integer.parseInt(parts[2]));
+            return;
+        } else if (fromServer.startsWith("RESUME_TOKEN ")) {
+            resumeToken = fromServer.substring(13);
+            return;
+        } else if (fromServer.startsWith("RESUME_FAILED")) {
+            resumeToken = null;
+        } else if (fromServer.startsWith("GAME_OVER ")) {
+            resumeToken = null; // Nothing left to resume
+            String[] parts = fromServer.split(" ", 4);
+            int correct = Integer.parseInt(parts[1]);
+            long averageMillis = Long.parseLong(parts[2]);
+            String incorrect = parts.length > 3 ? parts[3] : "";
+            SwingUtilities.invokeLater(() -> {
+                if (displayWords != null) {
+                    displayWords.showGameOver(correct, averageMillis, incorrect);
+                }
+            });
+            return;
+        } else if (fromServer.startsWith("UPDATE ")) {
+            String[] parts = fromServer.split(" "); // UPDATE word name=total name=total...; only the players whose score changed
+            StringBuilder changed = new StringBuilder();
+            for (int i = 2; i < parts.length; i++) {
+                int separator = parts[i].lastIndexOf('=');
+                if (separator > 0) {
+                    liveScores.put(parts[i].substring(0, separator), Integer.parseInt(parts[i].substring(separator + 1)));
+                    changed.append(i == 2 ? "" : " ").append(parts[i]);
+                }
+            }
+            String word = parts.length > 1 ? parts[1] : "";
+            String scores = "Live Scores: " + liveScores;
+            SwingUtilities.invokeLater(() -> {
+                if (displayWords != null) {
+                    displayWords.updateWord(word, changed.toString(), scores);
+                }
+            });
+            return;
+        }
+        System.out.println("Server: " + fromServer);
+        if (fromServer.startsWith("Login successful. Your username is:")) {
+            userName = fromServer.substring(fromServer.lastIndexOf(":") + 2);
+            System.out.println("Logged in as: " + userName);
+        } else if (fromServer.startsWith("WINNER:")) {
+            System.out.println(fromServer);
+        }
+    }
+
+    private static void handleMessage(BinaryCodec.Message message) throws IOException {
+        switch (message.type()) {
+            case BinaryCodec.TEXT:
+                handleLine(message.readString());
+                break;
+            case BinaryCodec.LOGIN_RESULT: {
+                boolean success = message.readBool();
+                String name = message.readString();
+                if (success) {
+                    userName = name;
+                    System.out.println("Logged in as: " + userName);
+                } else {
+                    System.out.println("Login failed.");
+                }
+                break;
+            }
+            case BinaryCodec.WORD: {
+                int index = message.readVarint();
+                int seconds = message.readVarint();
+                showWord(index, seconds, message.readString());
+                break;
+            }
+            case BinaryCodec.RESULT: {
+                boolean correct = message.readBool();
+                showResult(correct, message.readVarint());
+                break;
+            }
+            case BinaryCodec.SCORE_DELTA: {
+                int count = message.readVarint();
+                for (int i = 0; i < count; i++) {
+                    String name = message.readString();
+                    liveScores.merge(name, message.readSignedVarint(), Integer::sum);
+                }
+                String scores = "Live Scores: " + liveScores;
+                SwingUtilities.invokeLater(() -> {
+                    if (displayWords != null) {
+                        displayWords.updateWord("", "", scores);
+                    }
+                });
+                break;
+            }
+            case BinaryCodec.WINNER: {
+                String winner = message.readString();
+                System.out.println("The Winner is " + winner + " with score: " + message.readVarint());
+                liveScores.clear();
+                break;
+            }
+            default:
+                System.out.println("Ignoring unknown message type " + message.type());
+        }
+    }
+
+    private static void showWord(int index, int seconds, String word) {
+        SwingUtilities.invokeLater(() -> {
+            if (displayWords != null) {
+                displayWords.showWord(index, seconds, word);
+            }
+        });
+    }
+
+    private static void showResult(boolean correct, int correctCount) {
+        SwingUtilities.invokeLater(() -> {
+            if (displayWords != null) {
+                displayWords.showResult(correct, correctCount);
+            }
+        });
+    }
+}
@@ -0,0 +1,246 @@
+package typingrace;
+
+import java.io.*;
+import java.net.*;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class server {
+    private static final int PORT = Integer.getInteger("typingrace.port", 1234); // Port number for the server to listen on
+    private static final String MODE = System.getProperty("typingrace.mode", "blocking"); // "blocking", "virtual" or "nio"
+    private static final int POOL_SIZE = Integer.getInteger("typingrace.poolSize", 5); // Session threads in blocking mode
+    private static final int GROUP_SIZE = Integer.getInteger("typingrace.groupSize", 3); // Number of clients per group
+    private static final int MIN_PLAYERS = Integer.getInteger("typingrace.minPlayers", 2); // Enough to start after the fill timeout
+    private static final long FILL_TIMEOUT_MS = Long.getLong("typingrace.fillTimeoutMs", 0); // 0 waits for a full group
+    private static final long LOGIN_TIMEOUT_MS = Long.getLong("typingrace.idle.loginMs", 30000); // Closes connections that never log in, 0 never does
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("typingrace.idle.timeoutMs", 0); // Closes logged-in clients that never joined a game, 0 never does
+    private static final long REAP_INTERVAL_MS = 1000;
+    private static final SessionRegistry sessions = new SessionRegistry(); // Connected clients, by id and by username
+    private static final Map<Integer, GameRoom> rooms = new ConcurrentHashMap<>(); // Rooms with a game running or finished
+    private static final Map<String, GameRoom> roomsByToken = new ConcurrentHashMap<>(); // Resume token to the room of its seat
+    private static final AtomicInteger nextRoomId = new AtomicInteger(1);
+    private static final Matchmaker matchmaker = new Matchmaker(GROUP_SIZE, MIN_PLAYERS, FILL_TIMEOUT_MS, server::startGameForGroup);
+    private static final Metrics.Counter ACCEPTED = Metrics.counter("connections.accepted");
+    private static final Metrics.Counter REAPED = Metrics.counter("connections.reaped");
+
+    static {
+        Metrics.gauge("connections.active", sessions::size);
+        Metrics.gauge("rooms.active", rooms::size);
+    }
+
+    static ExecutorService newSessionExecutor() {
+        if ("virtual".equalsIgnoreCase(MODE)) {
+            // A thread per connection never queues, but the scheduler can still fall behind a burst
+            return new BoundedHandoffExecutor(newVirtualThreadExecutor(), Admission.HANDOFF_QUEUE);
+        }
+        // Fixed pool with a bounded queue: past it, a connection is turned away instead of waiting without limit
+        return new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Admission.HANDOFF_QUEUE));
+    }
+
+    private static ExecutorService newWriterExecutor() {
+        if ("virtual".equalsIgnoreCase(MODE)) {
+            return newVirtualThreadExecutor();
+        }
+        return Executors.newCachedThreadPool(); // Threads only live while some client has frames to write
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // Looked up reflectively so the sources still compile on Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Log.warn("Virtual threads need Java 21 or newer, falling back to platform threads");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static void main(String[] args) {
+        server serverInstance = new server(); // Create a server instance
+        MetricsEndpoint.start();
+        MatchHistory.shared(); // Replays the match log into the leaderboard before anyone can ask for it
+        restoreRooms(); // Races that were running when the server stopped wait for their players to resume
+        ClusterNode.start(PORT, sessions::size); // Heartbeats to the router when running as a cluster node
+        if (LOGIN_TIMEOUT_MS > 0 || IDLE_TIMEOUT_MS > 0) {
+            scheduleReaper();
+        }
+
+        if ("nio".equalsIgnoreCase(MODE)) {
+            try {
+                new NioServer(PORT, serverInstance).run(); // Serve every connection from the selector event loops
+            } catch (IOException e) {
+                Log.error("Server exception", e);
+            }
+            return;
+        }
+
+        try (ServerSocket serverSocket = new ServerSocket(PORT)) { // Create a server socket listening on PORT
+            Log.info("Server started. Listening on Port " + PORT);
+            ExecutorService executorService = newSessionExecutor(); // Thread pool or virtual threads for handling clients
+            ExecutorService writerExecutor = newWriterExecutor(); // Drains the per-client outbound queues
+            Admission admission = new Admission();
+
+            while (true) { // Infinite loop to accept client connections
+                Socket clientSocket = serverSocket.accept(); // Accept a new client connection
+                long retryAfter = admission.admit(clientSocket.getInetAddress(), sessions.size());
+                if (retryAfter > 0) {
+                    Admission.reject(clientSocket, retryAfter); // Full or connecting too fast
+                    continue;
+                }
+                if (Log.isEnabled(Log.Level.DEBUG)) {
+                    Log.debug("New client connected: " + clientSocket);
+                }
+                ClientHandler clientHandler = new ClientHandler(clientSocket, serverInstance,
+                        new StreamOutbound(clientSocket, writerExecutor)); // Create a new ClientHandler
+                Session session = serverInstance.registerClient(clientSocket, clientHandler); // Track the client; it gets a lobby seat once it logs in
+                try {
+                    executorService.submit(clientHandler); // Handle the client in a new thread
+                } catch (RejectedExecutionException e) {
+                    serverInstance.unregisterClient(session); // Every session thread is busy and the handoff queue is full
+                    Admission.reject(clientSocket, admission.handoffFull());
+                }
+            }
+        } catch (IOException e) { // Handle exceptions
+            Log.error("Server exception", e);
+        }
+    }
+
+    Session registerClient(Socket clientSocket, ClientHandler clientHandler) {
+        Session session = sessions.open(clientSocket, clientHandler);
+        clientHandler.attach(session);
+        ACCEPTED.increment();
+        session.setState(Session.State.LOBBY);
+        return session;
+    }
+
+    int sessionCount() {
+        return sessions.size();
+    }
+
+    private static void scheduleReaper() {
+        TimerWheel.shared().schedule(() -> {
+            reapIdle();
+            scheduleReaper();
+        }, REAP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Closes connections sitting at the login prompts, which hold a lobby seat and a session slot,
+    // and, if configured, logged-in clients that stayed in the menu without ever joining a game
+    private static void reapIdle() {
+        long now = System.nanoTime();
+        for (Session session : sessions.all()) {
+            boolean loggedIn = session.getUsername() != null;
+            long limit = loggedIn ? IDLE_TIMEOUT_MS : LOGIN_TIMEOUT_MS;
+            if (limit <= 0 || session.idleMillis(now) < limit || (loggedIn && session.getState() != Session.State.LOBBY)) {
+                continue;
+            }
+            ClientHandler handler = session.getHandler();
+            if (handler != null && !handler.isWatching()) {
+                REAPED.increment();
+                handler.disconnect("IDLE_TIMEOUT Closed after " + limit / 1000 + " s without input.");
+            }
+        }
+    }
+
+    public void unregisterClient(Session session) {
+        if (!sessions.close(session)) {
+            return; // Already gone
+        }
+        matchmaker.leave(session); // Frees the seat so the lobby can be backfilled
+        GameRoom room = session.getRoom();
+        if (room != null) {
+            room.leave(session);
+            if (room.isEmpty()) {
+                retireRoom(room); // Last player gone
+            }
+        }
+    }
+
+    static void retireRoom(GameRoom room) {
+        if (rooms.remove(room.getId(), room)) {
+            for (String token : room.tokens()) {
+                roomsByToken.remove(token);
+            }
+            room.close();
+        }
+    }
+
+    private static void startGameForGroup(List<Session> group) {
+        GameRoom room = new GameRoom(nextRoomId.getAndIncrement(), group); // Each group races in its own room
+        addRoom(room);
+        for (Session session : group) {
+            session.setRoom(room);
+        }
+        room.start();
+    }
+
+    private static void addRoom(GameRoom room) {
+        rooms.put(room.getId(), room);
+        for (String token : room.tokens()) {
+            roomsByToken.put(token, room);
+        }
+    }
+
+    private static void restoreRooms() {
+        for (RoomJournal.SavedRoom saved : RoomJournal.shared().recovered()) {
+            addRoom(new GameRoom(saved));
+            nextRoomId.accumulateAndGet(saved.id + 1, Math::max); // New rooms never reuse a restored id
+        }
+    }
+
+    // RESUME <token>: the session takes back the seat it raced in before its connection dropped
+    public boolean resume(Session session, String token) {
+        GameRoom room = roomsByToken.get(token);
+        String username = room != null ? room.resume(token, session) : null;
+        if (username == null) {
+            return false;
+        }
+        matchmaker.leave(session); // In case it logged in and took a lobby seat first
+        sessions.login(session, username); // The token stands in for the password
+        session.setRoom(room);
+        room.rejoin(session);
+        return true;
+    }
+
+    public GameRoom getRoom(int id) {
+        return rooms.get(id);
+    }
+
+    public void login(Session session, String username) {
+        sessions.login(session, username); // Indexes the session under its username
+        if (session.getRoom() == null) {
+            matchmaker.leave(session); // Logging in again keeps a single seat
+            matchmaker.join(session); // Seated only now, so connections still at the prompts hold no lobby seat
+        }
+    }
+
+    public void confirmRegistration(Session session) {
+        matchmaker.confirm(session); // Starts the group's game if this was the last confirmation
+    }
+
+    public void markAsViewer(Session session) {
+        session.setState(Session.State.VIEWING);
+    }
+
+    public void markReadyToPlayAgain(Session session) {
+        GameRoom room = session.getRoom();
+        if (room != null) {
+            room.votePlayAgain(session); // The room restarts once all of its players voted
+        }
+    }
+
+    public static Session getSession(String username) {
+        return sessions.byUsername(username); // The session the user is logged in on, or null
+    }
+
+    public int getGroupSize() {
+        return matchmaker.getGroupSize();
+    }
+}
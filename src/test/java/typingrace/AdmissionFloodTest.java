@@ -0,0 +1,158 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+// Runs the real accept loop in virtual mode with room for PLAYERS sessions, then floods it with ten
+// times as many connections. The players already in keep asking RANK and their round trips are
+// compared with the same loop before the flood.
+class AdmissionFloodTest {
+    private static final int PLAYERS = 20;
+    private static final int FLOOD = PLAYERS * 10;
+    private static final int PROBES = 25; // Per player and phase
+    private static final int PORT;
+
+    static {
+        try (ServerSocket free = new ServerSocket(0)) {
+            PORT = free.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.setProperty("typingrace.port", Integer.toString(PORT));
+        System.setProperty("typingrace.mode", "virtual");
+        System.setProperty("typingrace.maxSessions", Integer.toString(PLAYERS));
+        System.setProperty("typingrace.admission.perIpRate", "0"); // Everything comes from localhost; let the session cap decide
+    }
+
+    @Test
+    void admittedPlayersKeepTheirLatencyUnderTenTimesOverload() throws Exception {
+        Thread serverThread = new Thread(() -> server.main(new String[0]), "flood-test-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < PLAYERS; i++) {
+            players.add(new Player(i == 0 ? connectWhenListening() : new Socket("localhost", PORT)));
+        }
+        for (Player player : players) {
+            assertTrue(player.readLine().startsWith("Welcome!"));
+        }
+
+        long[] quiet = probe(players);
+
+        AtomicBoolean flooding = new AtomicBoolean(true);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicInteger turnedAway = new AtomicInteger();
+        List<Thread> flooders = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread flooder = new Thread(() -> {
+                while (flooding.get() || attempts.get() < FLOOD) {
+                    attempts.incrementAndGet();
+                    try (Socket socket = new Socket("localhost", PORT)) {
+                        String line = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)).readLine();
+                        if (line != null && line.startsWith("SERVER_FULL ")) {
+                            turnedAway.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        // Counted as an attempt that was not turned away properly
+                    }
+                }
+            }, "flooder-" + i);
+            flooder.start();
+            flooders.add(flooder);
+        }
+        long[] overloaded = probe(players);
+        flooding.set(false);
+        for (Thread flooder : flooders) {
+            flooder.join();
+        }
+
+        assertTrue(attempts.get() >= FLOOD);
+        assertEquals(attempts.get(), turnedAway.get(), "every connection past the cap gets SERVER_FULL");
+        long quietP99 = percentile(quiet, 99);
+        long overloadedP99 = percentile(overloaded, 99);
+        String summary = "p99 quiet " + quietP99 / 1000 + " us, under " + attempts.get() + " rejected connections " + overloadedP99 / 1000 + " us";
+        assertTrue(overloadedP99 <= 3 * quietP99 + 20_000_000L, summary);
+        for (Player player : players) {
+            player.socket.close();
+        }
+    }
+
+    // One RANK round trip per player in turn, PROBES times over; nanoseconds, sorted
+    private static long[] probe(List<Player> players) throws IOException {
+        long[] samples = new long[players.size() * PROBES];
+        int next = 0;
+        for (int round = 0; round < PROBES; round++) {
+            for (Player player : players) {
+                long started = System.nanoTime();
+                player.send("RANK probe");
+                while (!player.readLine().startsWith("RANK probe")) {
+                    // Skip anything else the server says
+                }
+                samples[next++] = System.nanoTime() - started;
+            }
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.max(0, (sorted.length * percent + 99) / 100 - 1)];
+    }
+
+    private static Socket connectWhenListening() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                return new Socket("localhost", PORT);
+            } catch (ConnectException e) {
+                if (i == 200) {
+                    throw e;
+                }
+                Thread.sleep(25);
+            }
+        }
+    }
+
+    private static final class Player {
+        final Socket socket;
+        final BufferedReader in;
+        final OutputStream out;
+
+        Player(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(10_000);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = socket.getOutputStream();
+        }
+
+        void send(String line) throws IOException {
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        String readLine() throws IOException {
+            String line = in.readLine();
+            if (line == null) {
+                throw new IOException("Server closed the connection");
+            }
+            return line;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class BinaryCodecTest {
+    private static final int MESSAGES = 20_000;
+    private static final int WORDS = 30;
+
+    static {
+        System.setProperty("typingrace.game.words", Integer.toString(WORDS));
+        System.setProperty("typingrace.scores.tickMs", "0"); // Every score change goes out at once, so both protocols send the same updates
+    }
+
+    @Test
+    void randomMessagesSurviveAnySplitOrBatching() throws IOException {
+        SplittableRandom random = new SplittableRandom(7);
+        List<Object[]> sent = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < MESSAGES; i++) {
+            Object[] fields = randomMessage(random);
+            sent.add(fields);
+            stream.writeBytes(encode(fields));
+        }
+        byte[] bytes = stream.toByteArray();
+
+        assertSameMessages(sent, decodeInChunks(bytes, random, bytes.length), "all in one read");
+        for (int maxChunk : new int[] {1, 2, 7, 64, 4096}) {
+            assertSameMessages(sent, decodeInChunks(bytes, random, maxChunk), "reads of up to " + maxChunk + " bytes");
+        }
+    }
+
+    @Test
+    void malformedInputIsRejected() {
+        BinaryCodec.Decoder decoder = new BinaryCodec.Decoder();
+        assertThrows(IOException.class, () -> decoder.decode(ByteBuffer.wrap(new byte[] {0}), message -> { }), "empty message");
+        assertThrows(IOException.class, () -> new BinaryCodec.Decoder().decode(ByteBuffer.wrap(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F}),
+                message -> { }), "longer than MAX_MESSAGE_LENGTH");
+        byte[] truncated = {3, BinaryCodec.TEXT, 9, 'x'}; // The string claims 9 bytes and has 1
+        assertThrows(IOException.class, () -> new BinaryCodec.Decoder().decode(ByteBuffer.wrap(truncated), message -> message.readString()));
+    }
+
+    // One race, seat 0 on text and seats 1 and 2 on binary, everyone typing every word right in
+    // lockstep, so all seats get the same words, results and score updates
+    @Test
+    void aBinaryGameTakesFewerBytesThanAText() {
+        server server = new server();
+        SessionRegistry sessions = new SessionRegistry();
+        TestPlayer[] players = {new TestPlayer(server, sessions, "text player"), new TestPlayer(server, sessions, "binary player"),
+                new TestPlayer(server, sessions, "other player")};
+        players[1].type(BinaryCodec.NEGOTIATION);
+        players[2].type(BinaryCodec.NEGOTIATION);
+        GameRoom room = new GameRoom(1, List.of(players[0].session, players[1].session, players[2].session));
+        long[] before = new long[players.length];
+        for (int seat = 0; seat < players.length; seat++) {
+            players[seat].session.setRoom(room);
+            before[seat] = players[seat].out.bytes();
+        }
+        room.start();
+        long textUp = 0;
+        long binaryUp = 0;
+        for (int i = 0; i < WORDS; i++) {
+            String word = players[0].currentWord(); // The binary seats are on the same word
+            byte[] text = ("SUBMIT " + word + "\n").getBytes(StandardCharsets.UTF_8);
+            byte[] binary = BinaryCodec.submit(word);
+            players[0].send(text);
+            players[1].send(binary);
+            players[2].send(binary);
+            textUp += text.length;
+            binaryUp += binary.length;
+        }
+        assertEquals(WORDS, players[0].wordsSeen());
+        assertNotNull(players[0].out.last("The Winner is"));
+
+        long textDown = players[0].out.bytes() - before[0];
+        long binaryDown = players[1].out.bytes() - before[1];
+        String summary = "bytes per game, server to client: text " + textDown + ", binary " + binaryDown + "; client to server: text " + textUp
+                + ", binary " + binaryUp;
+        assertTrue(binaryDown < textDown, summary);
+        assertTrue(binaryUp < textUp, summary);
+    }
+
+    // Type first, then the fields the way the decoder reads them back
+    private static Object[] randomMessage(SplittableRandom random) {
+        switch (random.nextInt(7)) {
+            case 0:
+                return new Object[] {BinaryCodec.TEXT, randomString(random)};
+            case 1:
+                return new Object[] {BinaryCodec.LOGIN, randomString(random), randomString(random)};
+            case 2:
+                return new Object[] {BinaryCodec.WORD, randomVarint(random), randomVarint(random), randomString(random)};
+            case 3:
+                return new Object[] {BinaryCodec.RESULT, random.nextBoolean(), randomVarint(random)};
+            case 4: {
+                int count = random.nextInt(5);
+                Object[] fields = new Object[2 + 2 * count];
+                fields[0] = BinaryCodec.SCORE_DELTA;
+                fields[1] = count;
+                for (int i = 0; i < count; i++) {
+                    fields[2 + 2 * i] = randomString(random);
+                    fields[3 + 2 * i] = random.nextInt();
+                }
+                return fields;
+            }
+            case 5: {
+                int count = random.nextInt(20);
+                Object[] fields = new Object[2 + count];
+                fields[0] = BinaryCodec.KEYS;
+                fields[1] = count;
+                for (int i = 0; i < count; i++) {
+                    fields[2 + i] = random.nextInt(-2000, 2000);
+                }
+                return fields;
+            }
+            default:
+                return new Object[] {BinaryCodec.WINNER, randomString(random), randomVarint(random)};
+        }
+    }
+
+    private static byte[] encode(Object[] fields) {
+        switch ((byte) fields[0]) {
+            case BinaryCodec.TEXT:
+                return BinaryCodec.text((String) fields[1]);
+            case BinaryCodec.LOGIN:
+                return BinaryCodec.login((String) fields[1], (String) fields[2]);
+            case BinaryCodec.WORD:
+                return BinaryCodec.word((int) fields[1], (int) fields[2], (String) fields[3]);
+            case BinaryCodec.RESULT:
+                return BinaryCodec.result((boolean) fields[1], (int) fields[2]);
+            case BinaryCodec.SCORE_DELTA: {
+                int count = (int) fields[1];
+                String[] names = new String[count];
+                int[] deltas = new int[count];
+                for (int i = 0; i < count; i++) {
+                    names[i] = (String) fields[2 + 2 * i];
+                    deltas[i] = (int) fields[3 + 2 * i];
+                }
+                return BinaryCodec.scoreDelta(names, deltas, count);
+            }
+            case BinaryCodec.KEYS: {
+                int[] events = new int[(int) fields[1]];
+                for (int i = 0; i < events.length; i++) {
+                    events[i] = (int) fields[2 + i];
+                }
+                return BinaryCodec.keys(events, events.length);
+            }
+            default:
+                return BinaryCodec.winner((String) fields[1], (int) fields[2]);
+        }
+    }
+
+    private static Object[] read(BinaryCodec.Message message) throws IOException {
+        switch (message.type()) {
+            case BinaryCodec.TEXT:
+                return new Object[] {message.type(), message.readString()};
+            case BinaryCodec.LOGIN:
+                return new Object[] {message.type(), message.readString(), message.readString()};
+            case BinaryCodec.WORD:
+                return new Object[] {message.type(), message.readVarint(), message.readVarint(), message.readString()};
+            case BinaryCodec.RESULT:
+                return new Object[] {message.type(), message.readBool(), message.readVarint()};
+            case BinaryCodec.SCORE_DELTA: {
+                int count = message.readVarint();
+                Object[] fields = new Object[2 + 2 * count];
+                fields[0] = message.type();
+                fields[1] = count;
+                for (int i = 0; i < count; i++) {
+                    fields[2 + 2 * i] = message.readString();
+                    fields[3 + 2 * i] = message.readSignedVarint();
+                }
+                return fields;
+            }
+            case BinaryCodec.KEYS: {
+                int count = message.readVarint();
+                Object[] fields = new Object[2 + count];
+                fields[0] = message.type();
+                fields[1] = count;
+                for (int i = 0; i < count; i++) {
+                    fields[2 + i] = message.readSignedVarint();
+                }
+                return fields;
+            }
+            case BinaryCodec.WINNER:
+                return new Object[] {message.type(), message.readString(), message.readVarint()};
+            default:
+                throw new IOException("Unexpected message type " + message.type());
+        }
+    }
+
+    // Feeds the stream to one decoder in reads of 1 to maxChunk bytes and returns what came out
+    private static List<Object[]> decodeInChunks(byte[] bytes, SplittableRandom random, int maxChunk) throws IOException {
+        List<Object[]> received = new ArrayList<>();
+        BinaryCodec.Decoder decoder = new BinaryCodec.Decoder();
+        for (int pos = 0; pos < bytes.length; ) {
+            int chunk = Math.min(bytes.length - pos, 1 + random.nextInt(maxChunk));
+            decoder.decode(ByteBuffer.wrap(bytes, pos, chunk), message -> received.add(read(message)));
+            pos += chunk;
+        }
+        return received;
+    }
+
+    private static void assertSameMessages(List<Object[]> expected, List<Object[]> actual, String how) {
+        assertEquals(expected.size(), actual.size(), how);
+        for (int i = 0; i < expected.size(); i++) {
+            assertArrayEquals(expected.get(i), actual.get(i), how + ", message " + i);
+        }
+    }
+
+    // Usernames with spaces, accents and emoji, and the empty string
+    private static String randomString(SplittableRandom random) {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(12) == 0 ? random.nextInt(300) : random.nextInt(16);
+        for (int i = 0; i < length; i++) {
+            switch (random.nextInt(6)) {
+                case 0:
+                    value.append(' ');
+                    break;
+                case 1:
+                    value.append((char) random.nextInt(0xA0, 0x800));
+                    break;
+                case 2:
+                    value.appendCodePoint(random.nextInt(0x1F600, 0x1F650));
+                    break;
+                default:
+                    value.append((char) random.nextInt('a', 'z' + 1));
+            }
+        }
+        return value.toString();
+    }
+
+    // Mostly small, sometimes needing all five varint bytes
+    private static int randomVarint(SplittableRandom random) {
+        return random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(300);
+    }
+}
@@ -0,0 +1,46 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class BoundedHandoffExecutorTest {
+    @Test
+    void rejectsOnceThePermitsAreWaitingAndAcceptsAgainWhenTheyStart() throws InterruptedException {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        BoundedHandoffExecutor executor = new BoundedHandoffExecutor(single, 2);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            running.countDown();
+            await(release); // Holds the only thread, so the next tasks wait
+        });
+        assertTrue(running.await(1, TimeUnit.SECONDS));
+
+        CountDownLatch ran = new CountDownLatch(2);
+        executor.execute(ran::countDown);
+        executor.execute(ran::countDown);
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> { }), "two are already waiting");
+
+        release.countDown();
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        CountDownLatch later = new CountDownLatch(1);
+        executor.execute(later::countDown); // Permits came back as the waiting tasks started
+        assertTrue(later.await(1, TimeUnit.SECONDS));
+        single.shutdown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
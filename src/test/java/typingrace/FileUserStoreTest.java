@@ -0,0 +1,61 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileUserStoreTest {
+    private static final int SNAPSHOT_EVERY = 3;
+
+    static {
+        System.setProperty("typingrace.users.snapshotEvery", Integer.toString(SNAPSHOT_EVERY)); // Before FileUserStore reads it
+    }
+
+    @TempDir
+    Path directory;
+
+    private final PasswordHash hash = PasswordHash.create("secret", 1000);
+
+    @Test
+    void accountsSurviveARestart() throws IOException {
+        Path base = directory.resolve("users");
+        FileUserStore store = new FileUserStore(base);
+        for (int i = 0; i < 2 * SNAPSHOT_EVERY + 1; i++) {
+            assertTrue(store.add("player" + i, hash));
+        }
+        assertFalse(store.add("player0", hash), "a taken name stays taken");
+
+        FileUserStore restarted = new FileUserStore(base);
+        assertEquals(2 * SNAPSHOT_EVERY + 1, restarted.size());
+        assertTrue(restarted.find("player0").matches("secret"));
+        assertEquals(1, Files.readAllLines(Path.of(base + ".log")).size(), "the log only holds what came after the last snapshot");
+    }
+
+    @Test
+    void aFailedSnapshotKeepsTheAccountAndTheLog() throws IOException {
+        Path base = directory.resolve("users");
+        Files.createDirectory(Path.of(base + ".snapshot.tmp")); // The snapshot can't be written while this is in the way
+        FileUserStore store = new FileUserStore(base);
+        for (int i = 0; i < SNAPSHOT_EVERY; i++) {
+            assertTrue(store.add("player" + i, hash), "the account is in the log even though the snapshot failed");
+        }
+        assertNotNull(store.find("player" + (SNAPSHOT_EVERY - 1)));
+        assertTrue(store.add("late", hash), "the log is still open after the failed snapshot");
+
+        assertEquals(SNAPSHOT_EVERY + 1, new FileUserStore(base).size(), "a restart finds every account it was told about");
+
+        Files.delete(Path.of(base + ".snapshot.tmp"));
+        for (int i = 0; i < SNAPSHOT_EVERY; i++) {
+            assertTrue(store.add("after" + i, hash));
+        }
+        assertTrue(Files.exists(Path.of(base + ".snapshot")), "the next batch writes the snapshot");
+        assertEquals(2 * SNAPSHOT_EVERY + 1, new FileUserStore(base).size());
+    }
+}
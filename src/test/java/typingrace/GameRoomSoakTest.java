@@ -0,0 +1,125 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+// A thousand rooms racing at once on a shared pool, every player on whichever thread picks up its
+// turn, so finishing, announcing and play-again votes of one room interleave with all the others
+class GameRoomSoakTest {
+    private static final int ROOMS = 1000;
+    private static final int SEATS = 3;
+    private static final int WORDS = 5;
+
+    static {
+        System.setProperty("typingrace.game.words", Integer.toString(WORDS)); // Before GameRoom reads it
+    }
+
+    private final server server = new server();
+    private final SessionRegistry sessions = new SessionRegistry();
+    private final ExecutorService pool = Executors.newFixedThreadPool(32);
+
+    @Test
+    void everyRoomGetsExactlyOneCorrectWinnerPerRound() throws Exception {
+        List<GameRoom> rooms = new ArrayList<>();
+        List<TestPlayer[]> seats = new ArrayList<>();
+        for (int r = 0; r < ROOMS; r++) {
+            TestPlayer[] players = new TestPlayer[SEATS];
+            List<Session> group = new ArrayList<>();
+            for (int s = 0; s < SEATS; s++) {
+                players[s] = new TestPlayer(server, sessions, "room" + r + "seat" + s);
+                group.add(players[s].session);
+            }
+            GameRoom room = new GameRoom(r + 1, group);
+            for (Session session : group) {
+                session.setRoom(room);
+            }
+            rooms.add(room);
+            seats.add(players);
+        }
+        List<Future<?>> started = new ArrayList<>();
+        for (GameRoom room : rooms) {
+            started.add(pool.submit(room::start));
+        }
+        await(started);
+
+        playRound(seats, 0);
+        checkWinners(seats, 0, 1);
+
+        List<Future<?>> votes = new ArrayList<>();
+        for (TestPlayer[] players : seats) {
+            for (TestPlayer player : players) {
+                votes.add(pool.submit(() -> player.type("PLAY_AGAIN"))); // The last votes of a room race each other
+            }
+        }
+        await(votes);
+        for (TestPlayer[] players : seats) {
+            for (TestPlayer player : players) {
+                assertEquals(2, player.out.linesStartingWith("GAME_START ").size(), player.session + " restarted once");
+                player.type("PLAY_AGAIN"); // A vote in the middle of a round changes nothing
+            }
+        }
+
+        playRound(seats, 1);
+        checkWinners(seats, 1, 2);
+        for (TestPlayer[] players : seats) {
+            for (TestPlayer player : players) {
+                assertEquals(2, player.out.linesStartingWith("GAME_START ").size(), player.session + " was not restarted by a stray vote");
+            }
+        }
+        pool.shutdownNow();
+    }
+
+    // How many words a seat gets right in a round; ties are common, so seat order decides often
+    private static int correctWords(int room, int seat, int round) {
+        return (room * 7 + seat * 3 + round * 5) % (WORDS + 1);
+    }
+
+    private void playRound(List<TestPlayer[]> seats, int round) throws Exception {
+        List<Future<?>> turns = new ArrayList<>();
+        for (int r = 0; r < seats.size(); r++) {
+            TestPlayer[] players = seats.get(r);
+            for (int s = 0; s < SEATS; s++) {
+                TestPlayer player = players[s];
+                int correct = correctWords(r, s, round);
+                int wordsBefore = player.wordsSeen();
+                turns.add(pool.submit(() -> {
+                    for (int i = 0; i < WORDS; i++) {
+                        String word = player.currentWord();
+                        player.type("SUBMIT " + (i < correct ? word : word + "x"));
+                    }
+                    assertEquals(wordsBefore + WORDS - 1, player.wordsSeen(), "every answer was taken");
+                }));
+            }
+        }
+        await(turns);
+    }
+
+    private static void checkWinners(List<TestPlayer[]> seats, int round, int announced) {
+        for (int r = 0; r < seats.size(); r++) {
+            int best = 0;
+            for (int s = 1; s < SEATS; s++) {
+                if (correctWords(r, s, round) > correctWords(r, best, round)) {
+                    best = s; // The first seat with the top score wins a tie
+                }
+            }
+            String expected = "The Winner is room" + r + "seat" + best + " with score: " + correctWords(r, best, round);
+            for (TestPlayer player : seats.get(r)) {
+                List<String> winners = player.out.linesStartingWith("The Winner is ");
+                assertEquals(announced, winners.size(), player.session + " winner announcements");
+                assertEquals(expected, winners.get(announced - 1));
+            }
+        }
+    }
+
+    private static void await(List<Future<?>> futures) throws Exception {
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+// Thousands of idle lobby connections on the NIO event loops. Each one is timed from connect to
+// the greeting, and the heap and thread count are compared with and without them.
+class NioLoadTest {
+    private static final int CONNECTIONS = 5000;
+    private static final int PORT;
+
+    static {
+        try (ServerSocket free = new ServerSocket(0)) {
+            PORT = free.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.setProperty("typingrace.admission.perIpRate", "0"); // Every connection comes from localhost
+    }
+
+    private final server server = new server();
+
+    @Test
+    void thousandsOfIdleConnectionsCostNoThreadAndAFewKilobytesEach() throws Exception {
+        Thread serverThread = new Thread(() -> {
+            try {
+                new NioServer(PORT, server).run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, "nio-test-server");
+        serverThread.setDaemon(true);
+        serverThread.start();
+        connectWhenListening().close();
+        awaitSessions(0);
+
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+        long heapBefore = usedHeap();
+        List<Socket> sockets = new ArrayList<>(CONNECTIONS);
+        long[] acceptNanos = new long[CONNECTIONS];
+        for (int i = 0; i < CONNECTIONS; i++) {
+            long started = System.nanoTime();
+            Socket socket = new Socket("localhost", PORT);
+            skipLine(socket.getInputStream()); // "Welcome! ..." once the loop has registered it
+            acceptNanos[i] = System.nanoTime() - started;
+            sockets.add(socket);
+        }
+        awaitSessions(CONNECTIONS);
+        long perConnection = (usedHeap() - heapBefore) / CONNECTIONS;
+        int extraThreads = ManagementFactory.getThreadMXBean().getThreadCount() - threadsBefore;
+
+        Arrays.sort(acceptNanos);
+        String summary = CONNECTIONS + " connections: connect to greeting p50 " + acceptNanos[CONNECTIONS / 2] / 1000 + " us, p99 "
+                + acceptNanos[CONNECTIONS * 99 / 100] / 1000 + " us, max " + acceptNanos[CONNECTIONS - 1] / 1000 + " us; " + perConnection
+                + " heap bytes per connection, both ends; " + extraThreads + " extra threads";
+        assertTrue(extraThreads < 10, summary);
+        assertTrue(perConnection < 16 * 1024, summary);
+        assertTrue(acceptNanos[CONNECTIONS * 99 / 100] < TimeUnit.MILLISECONDS.toNanos(100), summary);
+
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        awaitSessions(0); // Every close is seen by a loop and the session goes away
+    }
+
+    private static void skipLine(InputStream in) throws IOException {
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Closed before the greeting");
+            }
+        }
+    }
+
+    private void awaitSessions(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (server.sessionCount() != count) {
+            assertTrue(System.nanoTime() < deadline, server.sessionCount() + " sessions open, expected " + count);
+            Thread.sleep(10);
+        }
+        assertEquals(count, server.sessionCount());
+    }
+
+    private static Socket connectWhenListening() throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                return new Socket("localhost", PORT);
+            } catch (ConnectException e) {
+                if (i == 200) {
+                    throw e;
+                }
+                Thread.sleep(25);
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
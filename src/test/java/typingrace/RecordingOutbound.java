@@ -0,0 +1,67 @@
+package typingrace;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// A client that reads instantly and keeps every text line it was sent, for tests to look through
+final class RecordingOutbound implements Outbound {
+    private final List<String> lines = new CopyOnWriteArrayList<>();
+    private final AtomicLong bytes = new AtomicLong(); // Everything sent, text or binary
+    private volatile boolean closed = false;
+
+    @Override
+    public boolean offer(Frame frame) {
+        bytes.addAndGet(frame.length());
+        for (String line : new String(frame.bytes(), StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                lines.add(line);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int backlog() {
+        return 0;
+    }
+
+    @Override
+    public void closeAfterFlush() {
+        closed = true;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    long bytes() {
+        return bytes.get();
+    }
+
+    List<String> lines() {
+        return lines;
+    }
+
+    List<String> linesStartingWith(String prefix) {
+        List<String> matching = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith(prefix)) {
+                matching.add(line);
+            }
+        }
+        return matching;
+    }
+
+    // The last line with this prefix, or null
+    String last(String prefix) {
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            if (lines.get(i).startsWith(prefix)) {
+                return lines.get(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,111 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+// A race is journaled by the shared file-backed journal, the process "dies" with a torn event at
+// the end of the file, and a second journal on the same files plays the part of the restarted
+// server: it rebuilds the room and a player takes their seat back with the resume token.
+class RoomJournalRecoveryTest {
+    private static final Path DIRECTORY;
+
+    static {
+        try {
+            DIRECTORY = Files.createTempDirectory("room-journal");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.setProperty("typingrace.rooms.store", "file");
+        System.setProperty("typingrace.rooms.file", DIRECTORY.resolve("rooms").toString());
+        System.setProperty("typingrace.rooms.snapshotMs", "600000"); // No snapshot of its own while the test runs
+        System.setProperty("typingrace.game.words", "5");
+    }
+
+    private final server server = new server();
+    private final SessionRegistry sessions = new SessionRegistry();
+
+    @Test
+    void aRestartedServerResumesTheRaceWhereTheCrashLeftIt() throws Exception {
+        TestPlayer[] players = {new TestPlayer(server, sessions, "ann"), new TestPlayer(server, sessions, "bob"),
+                new TestPlayer(server, sessions, "cy")};
+        GameRoom room = new GameRoom(7, List.of(players[0].session, players[1].session, players[2].session));
+        for (TestPlayer player : players) {
+            player.session.setRoom(room);
+        }
+        room.start();
+        String[] tokens = room.tokens();
+        players[0].type("SUBMIT " + players[0].currentWord());
+        String missed = players[0].currentWord();
+        players[0].type("SUBMIT wrong");
+        players[1].type("SUBMIT " + players[1].currentWord());
+        players[2].type("QUIT");
+        Path journal = DIRECTORY.resolve("rooms.journal");
+        awaitLines(journal, 5); // Round start, three answers and a forfeit are on disk
+        Files.write(journal, "6 W 17".getBytes(StandardCharsets.US_ASCII), StandardOpenOption.APPEND); // Cut off mid-write
+
+        long crashed = System.nanoTime();
+        RoomJournal restarted = new RoomJournal(DIRECTORY.resolve("rooms"));
+        assertEquals(1, restarted.recovered().size());
+        RoomJournal.SavedRoom saved = restarted.recovered().get(0);
+        GameRoom restored = new GameRoom(saved);
+        TestPlayer ann = new TestPlayer(server, sessions, null);
+        assertEquals("ann", restored.resume(tokens[0], ann.session));
+        sessions.login(ann.session, "ann");
+        ann.session.setRoom(restored);
+        restored.rejoin(ann.session);
+        long resumeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - crashed);
+
+        assertEquals(7, saved.id);
+        assertEquals(2, saved.seats[0].index);
+        assertEquals(1, saved.seats[0].correctCount);
+        assertEquals(List.of(missed), saved.seats[0].incorrectWords);
+        assertEquals(1, saved.seats[1].index);
+        assertTrue(saved.seats[2].forfeited);
+        assertTrue(ann.out.last("WORD ").startsWith("WORD 2 "), "back on the word the crash interrupted");
+        assertTrue(resumeMillis < 1000, "resumed " + resumeMillis + " ms after the restart began");
+    }
+
+    @Test
+    void recoveryCostFollowsTheActiveRoomsNotTheHistory() throws Exception {
+        Path base = DIRECTORY.resolve("history");
+        RoomJournal before = new RoomJournal(base);
+        List<String> words = List.of("one", "two", "three");
+        String[] names = {"a", "b"};
+        int finished = 2000;
+        for (int room = 1; room <= finished; room++) {
+            before.roundStarted(room, words, names, new String[] {"t" + room + "a", "t" + room + "b"});
+            before.answered(room, 0, 0, true, 900);
+            before.roundEnded(room);
+        }
+        for (int room = finished + 1; room <= finished + 3; room++) {
+            before.roundStarted(room, words, names, new String[] {"t" + room + "a", "t" + room + "b"});
+        }
+        awaitLines(Path.of(base + ".journal"), finished * 3 + 3);
+
+        RoomJournal first = new RoomJournal(base); // Replays the whole journal once and folds it into a snapshot
+        assertEquals(3, first.recovered().size());
+        assertEquals(3 * (1 + names.length), Files.readAllLines(Path.of(base + ".snapshot")).size() - 1, "only the active rooms are kept");
+        assertEquals(0, Files.size(Path.of(base + ".journal")));
+
+        RoomJournal second = new RoomJournal(base);
+        assertEquals(3, second.recovered().size());
+    }
+
+    private static void awaitLines(Path file, int lines) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (Files.readAllLines(file, StandardCharsets.UTF_8).size() < lines) {
+            assertTrue(System.nanoTime() < deadline, "journal never reached " + lines + " lines");
+            Thread.sleep(10);
+        }
+    }
+}
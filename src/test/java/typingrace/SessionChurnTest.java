@@ -0,0 +1,67 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Connections going through the same server calls as real ones: registered, logged in, which
+// seats them in a lobby, and unregistered. Whatever they leave behind shows up as heap that no
+// collection gets back.
+class SessionChurnTest {
+    private static final int CYCLES = 1_000_000;
+    private static final int OPEN = 100_000;
+    private static final long ALLOWED_GROWTH = 8L << 20; // A leaked map entry per cycle alone would be several times this
+
+    private final server server = new server();
+    private int nextName = 0;
+
+    @Test
+    void aMillionConnectAndDisconnectCyclesLeaveNothingBehind() {
+        churn(OPEN); // Lets lazily built tables reach their working size first
+        long settled = usedHeap();
+        churn(CYCLES);
+        assertEquals(0, server.sessionCount());
+        long grown = usedHeap() - settled;
+        assertTrue(grown < ALLOWED_GROWTH, "heap grew by " + grown + " bytes over " + CYCLES + " cycles");
+    }
+
+    @Test
+    void anOpenSessionCostsAFewKilobytes() {
+        long empty = usedHeap();
+        List<Session> open = new ArrayList<>(OPEN);
+        for (int i = 0; i < OPEN; i++) {
+            open.add(connect());
+        }
+        long perSession = (usedHeap() - empty) / OPEN;
+        assertEquals(OPEN, server.sessionCount());
+        for (Session session : open) {
+            server.unregisterClient(session);
+        }
+        assertEquals(0, server.sessionCount());
+        assertTrue(perSession < 4096, perSession + " bytes per open session, handler included");
+    }
+
+    private void churn(int cycles) {
+        for (int i = 0; i < cycles; i++) {
+            server.unregisterClient(connect());
+        }
+    }
+
+    private Session connect() {
+        ClientHandler handler = new ClientHandler(null, server, new RecordingOutbound());
+        Session session = server.registerClient(null, handler);
+        server.login(session, "player" + nextName++);
+        return session;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
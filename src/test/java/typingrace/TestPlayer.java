@@ -0,0 +1,46 @@
+package typingrace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// A logged-in session with a real ClientHandler and no socket; input goes in as bytes, as if read
+// from the connection, and everything sent back is recorded
+final class TestPlayer {
+    final Session session;
+    final ClientHandler handler;
+    final RecordingOutbound out = new RecordingOutbound();
+
+    TestPlayer(server server, SessionRegistry sessions, String username) {
+        handler = new ClientHandler(null, server, out);
+        session = sessions.open(null, handler);
+        handler.attach(session);
+        if (username != null) {
+            sessions.login(session, username);
+        }
+    }
+
+    void type(String line) {
+        send((line + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Raw bytes, such as binary protocol messages once it was negotiated
+    void send(byte[] bytes) {
+        try {
+            handler.onInput(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // The word the server is waiting for, from the last WORD line
+    String currentWord() {
+        String line = out.last("WORD ");
+        return line == null ? null : line.split(" ", 4)[3]; // WORD <index> <seconds> <word>
+    }
+
+    int wordsSeen() {
+        return out.linesStartingWith("WORD ").size();
+    }
+}
@@ -0,0 +1,107 @@
+package typingrace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class TimerWheelTest {
+    private static final int DRIFTING = 5000;
+
+    @Test
+    void aRescheduledTimeoutFiresOnceAtItsLatestDeadline() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel(5, 64)) {
+            AtomicInteger runs = new AtomicInteger();
+            TimerWheel.Timeout timeout = wheel.timeout(runs::incrementAndGet);
+            long started = System.nanoTime();
+            timeout.schedule(50, TimeUnit.MILLISECONDS);
+            for (int i = 0; i < 10; i++) {
+                Thread.sleep(20);
+                timeout.schedule(100, TimeUnit.MILLISECONDS); // Keeps moving before it is due
+            }
+            Thread.sleep(300);
+            assertEquals(1, runs.get());
+            assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(300));
+        }
+    }
+
+    @Test
+    void aTimeoutCanBeScheduledAgainAfterItFiredOrWasCancelled() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel(5, 64)) {
+            CountDownLatch fired = new CountDownLatch(2);
+            TimerWheel.Timeout timeout = wheel.timeout(fired::countDown);
+            timeout.schedule(10, TimeUnit.MILLISECONDS);
+            Thread.sleep(100);
+            assertEquals(1, fired.getCount(), "fired the first time");
+            assertFalse(timeout.cancel(), "nothing left to cancel");
+
+            timeout.schedule(10, TimeUnit.MILLISECONDS);
+            assertTrue(timeout.cancel());
+            Thread.sleep(100);
+            assertEquals(1, fired.getCount(), "a cancelled deadline does not fire");
+
+            timeout.schedule(10, TimeUnit.MILLISECONDS);
+            assertTrue(fired.await(1, TimeUnit.SECONDS), "scheduled again after the cancel");
+        }
+    }
+
+    @Test
+    void aOneShotTimeoutNeverFiresEarly() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel(5, 64)) {
+            CountDownLatch fired = new CountDownLatch(1);
+            long[] firedAt = new long[1];
+            long started = System.nanoTime();
+            wheel.schedule(() -> {
+                firedAt[0] = System.nanoTime();
+                fired.countDown();
+            }, 80, TimeUnit.MILLISECONDS);
+            assertTrue(fired.await(1, TimeUnit.SECONDS));
+            assertTrue(firedAt[0] - started >= TimeUnit.MILLISECONDS.toNanos(80));
+        }
+    }
+
+    // Thousands of deadlines spread over a few turns of the wheel, about half of them moved once
+    // before they are due, as a word answered early moves a player's. None may fire early, and the
+    // lateness stays within the tick, the configured drift bound, plus what a busy machine adds.
+    @Test
+    void deadlinesDriftLessThanATick() throws InterruptedException {
+        long tickMillis = 10;
+        try (TimerWheel drifting = new TimerWheel(tickMillis, 64)) {
+                    SplittableRandom random = new SplittableRandom(9);
+            long[] due = new long[DRIFTING];
+            long[] late = new long[DRIFTING];
+            CountDownLatch fired = new CountDownLatch(DRIFTING);
+            TimerWheel.Timeout[] timeouts = new TimerWheel.Timeout[DRIFTING];
+            for (int i = 0; i < DRIFTING; i++) {
+                int id = i;
+                timeouts[i] = drifting.timeout(() -> {
+                    late[id] = System.nanoTime() - due[id];
+                    fired.countDown();
+                });
+                long delay = random.nextLong(20, 1500); // Up to more than two turns of the wheel
+                due[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                timeouts[i].schedule(delay, TimeUnit.MILLISECONDS);
+            }
+            for (int i = 0; i < DRIFTING; i += 2) {
+                long delay = random.nextLong(20, 1500);
+                due[i] = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+                timeouts[i].schedule(delay, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(fired.await(5, TimeUnit.SECONDS));
+
+            Arrays.sort(late);
+            long bound = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+            String summary = "lateness p50 " + late[DRIFTING / 2] / 1000 + " us, p99 " + late[DRIFTING * 99 / 100] / 1000 + " us, max "
+                    + late[DRIFTING - 1] / 1000 + " us";
+            assertTrue(late[0] >= 0, "fired early; " + summary);
+            assertTrue(late[DRIFTING / 2] <= bound, summary);
+            assertTrue(late[DRIFTING * 99 / 100] <= bound + TimeUnit.MILLISECONDS.toNanos(50), summary); // A stalled machine, not the wheel
+        }
+    }
+}